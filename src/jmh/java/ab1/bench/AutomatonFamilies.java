@@ -0,0 +1,114 @@
+package ab1.bench;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import ab1.Ab1;
+import ab1.DFA;
+import ab1.NFA;
+
+/**
+ * Erzeugt die Automaten für die Benchmarks. Alle zufälligen Automaten hängen
+ * nur vom Seed ab, damit verschiedene Läufe vergleichbar sind.
+ */
+public final class AutomatonFamilies {
+
+	private AutomatonFamilies() {
+	}
+
+	/**
+	 * @param size Anzahl Zeichen
+	 * @return die Zeichen 'a', 'b', ... (size Stück)
+	 */
+	public static Set<Character> alphabet(int size) {
+		Set<Character> alphabet = new HashSet<>();
+		for (int i = 0; i < size; i++) {
+			alphabet.add((char) ('a' + i));
+		}
+		return alphabet;
+	}
+
+	/**
+	 * Zufälliger NFA: jeder Zustand hat pro Zeichen einen Übergang, mit
+	 * Wahrscheinlichkeit nondeterminism einen zweiten und mit Wahrscheinlichkeit
+	 * epsilon zusätzlich einen Epsilon-Übergang. Etwa jeder vierte Zustand ist
+	 * akzeptierend.
+	 */
+	public static NFA randomNFA(Ab1 factory, long seed, int numStates, int alphabetSize, double nondeterminism,
+			double epsilon) {
+		Random random = new Random(seed);
+		Set<Character> alphabet = alphabet(alphabetSize);
+		NFA nfa = factory.createNFA(numStates, alphabet, randomAcceptingStates(random, numStates), 0);
+		for (int s = 0; s < numStates; s++) {
+			for (char c : alphabet) {
+				nfa.setTransition(s, c, random.nextInt(numStates));
+				if (random.nextDouble() < nondeterminism)
+					nfa.setTransition(s, c, random.nextInt(numStates));
+			}
+			if (random.nextDouble() < epsilon)
+				nfa.setTransition(s, null, random.nextInt(numStates));
+		}
+		return nfa;
+	}
+
+	/**
+	 * Zufälliger vollständiger DFA, etwa jeder vierte Zustand ist akzeptierend.
+	 */
+	public static DFA randomDFA(Ab1 factory, long seed, int numStates, int alphabetSize) {
+		Random random = new Random(seed);
+		Set<Character> alphabet = alphabet(alphabetSize);
+		DFA dfa = factory.createDFA(numStates, alphabet, randomAcceptingStates(random, numStates), 0);
+		for (int s = 0; s < numStates; s++) {
+			for (char c : alphabet) {
+				dfa.setTransition(s, c, random.nextInt(numStates));
+			}
+		}
+		return dfa;
+	}
+
+	/**
+	 * (a|b)*a(a|b)^n: der NFA hat n + 2 Zustände, der minimale DFA 2^(n+1).
+	 */
+	public static NFA blowup(Ab1 factory, int n) {
+		Set<Integer> accept = new HashSet<>();
+		accept.add(n + 1);
+		NFA nfa = factory.createNFA(n + 2, alphabet(2), accept, 0);
+		nfa.setTransition(0, 'a', 0);
+		nfa.setTransition(0, 'b', 0);
+		nfa.setTransition(0, 'a', 1);
+		for (int i = 1; i <= n; i++) {
+			nfa.setTransition(i, 'a', i + 1);
+			nfa.setTransition(i, 'b', i + 1);
+		}
+		return nfa;
+	}
+
+	/**
+	 * @return count zufällige Wörter der Länge length über alphabet
+	 */
+	public static String[] randomWords(long seed, Set<Character> alphabet, int count, int length) {
+		Random random = new Random(seed);
+		Character[] chars = alphabet.toArray(new Character[0]);
+		String[] words = new String[count];
+		for (int i = 0; i < count; i++) {
+			StringBuilder word = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				word.append(chars[random.nextInt(chars.length)]);
+			}
+			words[i] = word.toString();
+		}
+		return words;
+	}
+
+	private static Set<Integer> randomAcceptingStates(Random random, int numStates) {
+		Set<Integer> accept = new HashSet<>();
+		for (int s = 0; s < numStates; s++) {
+			if (random.nextInt(4) == 0)
+				accept.add(s);
+		}
+		if (accept.isEmpty())
+			accept.add(numStates - 1);
+		return accept;
+	}
+}
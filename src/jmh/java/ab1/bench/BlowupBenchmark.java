@@ -0,0 +1,82 @@
+package ab1.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ab1.NFA;
+import ab1.impl.LomonosovaMuhrerMalle.Ab1Impl;
+
+/**
+ * Der klassische Worst Case für die Potenzmengenkonstruktion:
+ * (a|b)*a(a|b)^n, der minimale DFA hat 2^(n+1) Zustände.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlowupBenchmark {
+
+	@Param({ "4", "8", "12" })
+	public int n;
+
+	private NFA nfa;
+	private NFA copy;
+	private NFA larger;
+	private String[] words;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Ab1Impl factory = new Ab1Impl();
+		nfa = AutomatonFamilies.blowup(factory, n);
+		copy = AutomatonFamilies.blowup(factory, n);
+		larger = AutomatonFamilies.blowup(factory, n + 1);
+		words = AutomatonFamilies.randomWords(3, nfa.getAlphabet(), 100, 256);
+	}
+
+	/** 100 Wörter der Länge 256 pro Aufruf */
+	@Benchmark
+	public void accepts(Blackhole bh) {
+		for (String w : words)
+			bh.consume(nfa.accepts(w));
+	}
+
+	@Benchmark
+	public Object toDFA() {
+		return nfa.toDFA();
+	}
+
+	@Benchmark
+	public Object complement() {
+		return nfa.complement();
+	}
+
+	@Benchmark
+	public Object minus() {
+		return nfa.minus(larger);
+	}
+
+	@Benchmark
+	public boolean equalsSame() {
+		return nfa.equals(copy);
+	}
+
+	@Benchmark
+	public boolean equalsDifferent() {
+		return nfa.equals(larger);
+	}
+}
@@ -0,0 +1,123 @@
+package ab1.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ab1.DFA;
+import ab1.NFA;
+
+/**
+ * Alle Operationen aus {@link ab1.NFA} auf zwei zufälligen Automaten derselben
+ * Familie. Die Unterklassen legen die Familie und die Größen fest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class OperationsBenchmark {
+
+	private NFA a;
+	private NFA b;
+	private NFA aCopy;
+	private DFA aDFA;
+	private String[] words;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		a = create(1);
+		b = create(2);
+		aCopy = create(1);
+		aDFA = a.toDFA();
+		words = AutomatonFamilies.randomWords(3, a.getAlphabet(), 100, 32);
+	}
+
+	/**
+	 * @param seed Seed für den Zufallsgenerator
+	 * @return ein neuer Automat der Familie
+	 */
+	protected abstract NFA create(long seed);
+
+	/** 100 Wörter der Länge 32 pro Aufruf */
+	@Benchmark
+	public void accepts(Blackhole bh) {
+		for (String w : words)
+			bh.consume(a.accepts(w));
+	}
+
+	@Benchmark
+	public Object toDFA() {
+		return a.toDFA();
+	}
+
+	@Benchmark
+	public Object complement() {
+		return a.complement();
+	}
+
+	@Benchmark
+	public Object union() {
+		return a.union(b);
+	}
+
+	@Benchmark
+	public Object intersection() {
+		return a.intersection(b);
+	}
+
+	@Benchmark
+	public Object minus() {
+		return a.minus(b);
+	}
+
+	@Benchmark
+	public Object concat() {
+		return a.concat(b);
+	}
+
+	@Benchmark
+	public Object kleeneStar() {
+		return a.kleeneStar();
+	}
+
+	@Benchmark
+	public Object plus() {
+		return a.plus();
+	}
+
+	/** minimiert den (nicht minimierten) Potenzmengen-DFA von a */
+	@Benchmark
+	public Object minimize() {
+		return aDFA.minimize();
+	}
+
+	@Benchmark
+	public boolean subSetOfSame() {
+		return a.subSetOf(aCopy);
+	}
+
+	@Benchmark
+	public boolean subSetOfDifferent() {
+		return a.subSetOf(b);
+	}
+
+	@Benchmark
+	public boolean equalsSame() {
+		return a.equals(aCopy);
+	}
+
+	@Benchmark
+	public boolean equalsDifferent() {
+		return a.equals(b);
+	}
+}
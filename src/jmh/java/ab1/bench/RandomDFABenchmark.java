@@ -0,0 +1,26 @@
+package ab1.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import ab1.NFA;
+import ab1.impl.LomonosovaMuhrerMalle.Ab1Impl;
+
+/**
+ * Zufällige vollständige DFAs.
+ */
+@State(Scope.Benchmark)
+public class RandomDFABenchmark extends OperationsBenchmark {
+
+	@Param({ "16", "64", "256" })
+	public int numStates;
+
+	@Param({ "2", "8", "32" })
+	public int alphabetSize;
+
+	@Override
+	protected NFA create(long seed) {
+		return AutomatonFamilies.randomDFA(new Ab1Impl(), seed, numStates, alphabetSize);
+	}
+}
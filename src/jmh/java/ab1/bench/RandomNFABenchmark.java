@@ -0,0 +1,27 @@
+package ab1.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import ab1.NFA;
+import ab1.impl.LomonosovaMuhrerMalle.Ab1Impl;
+
+/**
+ * Zufällige NFAs (5% zusätzliche Übergänge, 2% Epsilon-Übergänge). Die Größen
+ * bleiben klein, weil schon diese Automaten beim Determinisieren stark wachsen.
+ */
+@State(Scope.Benchmark)
+public class RandomNFABenchmark extends OperationsBenchmark {
+
+	@Param({ "4", "8", "16" })
+	public int numStates;
+
+	@Param({ "2", "8" })
+	public int alphabetSize;
+
+	@Override
+	protected NFA create(long seed) {
+		return AutomatonFamilies.randomNFA(new Ab1Impl(), seed, numStates, alphabetSize, 0.05, 0.02);
+	}
+}
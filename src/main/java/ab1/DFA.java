@@ -71,4 +71,13 @@ public interface DFA extends NFA {
 	 */
 	public void setTransition(int fromState, Character c, int toState)
 			throws IllegalStateException, IllegalCharacterException;
+
+	/**
+	 * Erzeugt einen minimalen DFA, der die selbe Sprache akzeptiert
+	 * (Partitionsverfeinerung nach Hopcroft). Nicht erreichbare Zustände
+	 * werden dabei entfernt, der Startzustand des Ergebnisses ist 0.
+	 *
+	 * @return der minimale DFA
+	 */
+	public DFA minimize();
 }
@@ -5,18 +5,56 @@ import java.util.Set;
 import ab1.Ab1;
 import ab1.DFA;
 import ab1.NFA;
+import ab1.exceptions.IllegalCharacterException;
 
 public class Ab1Impl implements Ab1 {
+	//wird an alle erzeugten Automaten weitergegeben (siehe NFAImpl.setAutoMinimize)
+	private boolean autoMinimize;
+	//wird ebenfalls weitergegeben (siehe NFAImpl.setAutoTrim)
+	private boolean autoTrim;
 
 	@Override
 	public NFA createNFA(int numStates, Set<Character> characters, Set<Integer> acceptingStates, int initialState) {
-		// TODO Auto-generated method stub
-		return new NFAImpl(numStates, characters, acceptingStates, initialState);
+		return withOptions(new NFAImpl(numStates, characters, acceptingStates, initialState));
 	}
 
 	@Override
 	public DFA createDFA(int numStates, Set<Character> characters, Set<Integer> acceptingStates, int initialState) {
-		// TODO Auto-generated method stub
-		return new DFAImpl(numStates, characters, acceptingStates, initialState);
+		return withOptions(new DFAImpl(numStates, characters, acceptingStates, initialState));
+	}
+
+	//NFA zu einem regulaeren Ausdruck (Syntax siehe RegexCompiler), das Alphabet sind die Zeichen im Ausdruck
+	public NFA createNFA(String regex) throws IllegalArgumentException {
+		return withOptions(RegexCompiler.compile(regex, null));
+	}
+
+	//wie createNFA(regex), '.' und [^...] beziehen sich auf das angegebene Alphabet
+	public NFA createNFA(String regex, Set<Character> alphabet) throws IllegalArgumentException, IllegalCharacterException {
+		return withOptions(RegexCompiler.compile(regex, alphabet));
+	}
+
+	//uebernimmt autoMinimize und autoTrim dieser Factory fuer einen neu erzeugten Automaten
+	private <T extends NFAImpl> T withOptions(T nfa) {
+		nfa.setAutoMinimize(autoMinimize);
+		nfa.setAutoTrim(autoTrim);
+		return nfa;
+	}
+
+	public boolean isAutoMinimize() {
+		return autoMinimize;
+	}
+
+	//Ergebnisse von toDFA, complement, intersection und minus automatisch minimieren
+	public void setAutoMinimize(boolean autoMinimize) {
+		this.autoMinimize = autoMinimize;
+	}
+
+	public boolean isAutoTrim() {
+		return autoTrim;
+	}
+
+	//unerreichbare und tote Zustaende nach union, concat, kleeneStar, complement, intersection, minus und toDFA entfernen
+	public void setAutoTrim(boolean autoTrim) {
+		this.autoTrim = autoTrim;
 	}
 }
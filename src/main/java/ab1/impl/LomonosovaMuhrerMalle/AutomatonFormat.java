@@ -0,0 +1,229 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.NFA;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binaerformat fuer Automaten (big-endian, alles int ausser wo angegeben):
+ * <pre>
+ * magic 'AB1A', version (short), flags (short, Bit 0 = DFA, Bit 1 = Alphabet ist eine CharRanges)
+ * numRanges, Alphabet als Bereiche (je lo, hi als char)
+ * numStates, initialState, numAccepting, akzeptierende Zustaende
+ * DFA: numSegments, pro Abschnitt lo, hi (als char) und Spalte; numColumns, table[numStates * numColumns]
+ * NFA: offsets[numStates + 1], dann pro Uebergang: Zeichen (-1 = Epsilon), Zielzustand;
+ *      numRangeTransitions, dann pro Bereichsuebergang: from, to, numRanges, Bereiche (je lo, hi als char)
+ * </pre>
+ * Ein DFA wird mit seinen Zeichenklassen gespeichert (Abschnitte wie in SymbolTable, Folgezustand
+ * pro Zustand und Spalte, -1 = keiner). Die Tabelle hat dasselbe Layout wie in DFAImpl und wird beim
+ * Laden direkt als dessen Transitionstabelle uebernommen, pro Uebergang entsteht kein Objekt und auch
+ * ein DFA ueber CharRanges.ALL bleibt so gross wie seine Klassen; read(Path) blendet die Datei dafuer
+ * mit FileChannel.map ein. Beim NFA stehen die Uebergaenge von Zustand s an den Positionen
+ * offsets[s] .. offsets[s + 1] - 1 (CSR); ein NFAImpl speichert seine Uebergaenge in Maps, dort
+ * entstehen beim Laden weiterhin Objekte pro Zustand und Zeichen bzw. Bereich.
+ * Alle Anzahlen, Zeichen und Zustandsnummern werden vor der Verwendung geprueft, eine beschaedigte
+ * oder fremde Datei (auch eine andere Version) fuehrt immer zu einer IOException.
+ */
+public final class AutomatonFormat {
+    private static final int MAGIC = 0x41423141;
+    private static final short VERSION = 2;
+    private static final short FLAG_DFA = 1;
+    private static final short FLAG_RANGES = 2;
+
+    private AutomatonFormat() {
+    }
+
+    public static void write(NFA a, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(a, out);
+        }
+    }
+
+    public static void write(NFA a, OutputStream stream) throws IOException {
+        NFAImpl nfa = NFAImpl.of(a);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        int numStates = nfa.getNumStates();
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort((nfa instanceof DFAImpl ? FLAG_DFA : 0) | (nfa.getAlphabet() instanceof CharRanges ? FLAG_RANGES : 0));
+        writeRanges(out, CharRanges.copyOf(nfa.getAlphabet()));
+        out.writeInt(numStates);
+        out.writeInt(nfa.getInitialState());
+        out.writeInt(nfa.getAcceptingStates().size());
+        for (int s : nfa.getAcceptingStates()) out.writeInt(s);
+
+        if (nfa instanceof DFAImpl) {
+            DFAImpl dfa = (DFAImpl) nfa;
+            SymbolTable symbols = dfa.getSymbolTable();
+            int[] table = dfa.getTransitionTable();
+            out.writeInt(symbols.numSegments());
+            for (int g = 0; g < symbols.numSegments(); g++) {
+                out.writeChar(symbols.segmentStart(g));
+                out.writeChar(symbols.segmentEnd(g));
+                out.writeInt(symbols.segmentColumn(g));
+            }
+            out.writeInt(symbols.size());
+            for (int i = 0; i < numStates * symbols.size(); i++) out.writeInt(table[i]);
+            out.flush();
+            return;
+        }
+
+        int offset = 0;
+        int numRangeTransitions = 0;
+        out.writeInt(offset);
+        for (int s = 0; s < numStates; s++) {
+            for (Set<Integer> targets : nfa.getSuccessors(s).values()) offset += targets.size();
+            out.writeInt(offset);
+            numRangeTransitions += nfa.getRangeSuccessors(s).size();
+        }
+        for (int s = 0; s < numStates; s++) {
+            for (Map.Entry<Character, Set<Integer>> entry : nfa.getSuccessors(s).entrySet()) {
+                int symbol = entry.getKey() == null ? -1 : entry.getKey();
+                for (int t : entry.getValue()) {
+                    out.writeInt(symbol);
+                    out.writeInt(t);
+                }
+            }
+        }
+        out.writeInt(numRangeTransitions);
+        for (int s = 0; s < numStates; s++) {
+            for (Map.Entry<Integer, CharRanges> entry : nfa.getRangeSuccessors(s).entrySet()) {
+                out.writeInt(s);
+                out.writeInt(entry.getKey());
+                writeRanges(out, entry.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeRanges(DataOutputStream out, CharRanges chars) throws IOException {
+        out.writeInt(chars.numRanges());
+        for (int i = 0; i < chars.numRanges(); i++) {
+            out.writeChar(chars.rangeStart(i));
+            out.writeChar(chars.rangeEnd(i));
+        }
+    }
+
+    //liefert einen DFAImpl, wenn ein DFA geschrieben wurde, sonst einen NFAImpl
+    public static NFA read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("automaton file too large: " + file);
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static NFA read(InputStream in) throws IOException {
+        return read(ByteBuffer.wrap(in.readAllBytes()));
+    }
+
+    private static NFA read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("not an automaton file");
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("unsupported automaton file version " + version);
+            short flags = buffer.getShort();
+            boolean deterministic = (flags & FLAG_DFA) != 0;
+
+            CharRanges chars = readRanges(buffer);
+            Set<Character> alphabet = (flags & FLAG_RANGES) != 0 ? chars : new HashSet<>(chars);
+            int numStates = count(buffer, 4);
+            int initialState = state(buffer.getInt(), numStates);
+            int numAccepting = count(buffer, 4);
+            Set<Integer> acceptingStates = new HashSet<>();
+            for (int i = 0; i < numAccepting; i++) acceptingStates.add(state(buffer.getInt(), numStates));
+
+            if (deterministic) {
+                int numSegments = count(buffer, 8);
+                char[] lo = new char[numSegments];
+                char[] hi = new char[numSegments];
+                int[] columns = new int[numSegments];
+                for (int g = 0; g < numSegments; g++) {
+                    lo[g] = buffer.getChar();
+                    hi[g] = buffer.getChar();
+                    columns[g] = buffer.getInt();
+                }
+                int numColumns = buffer.getInt();
+                SymbolTable symbols = SymbolTable.ofSegments(chars, lo, hi, columns, numColumns);
+                //passt die Tabelle nicht in den Rest der Datei, passt sie erst recht nicht in ein int[]
+                if ((long) numStates * numColumns > buffer.remaining() / 4) throw new IOException("invalid DFA table");
+                int[] table = new int[numStates * numColumns];
+                buffer.asIntBuffer().get(table);
+                for (int t : table) {
+                    if (t != -1) state(t, numStates);
+                }
+                return new DFAImpl(numStates, alphabet, acceptingStates, initialState, symbols, table);
+            }
+
+            int[] offsets = new int[numStates + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + 4 * offsets.length);
+            if (offsets[0] != 0) throw new IOException("invalid transition offsets");
+            for (int s = 0; s < numStates; s++) {
+                if (offsets[s + 1] < offsets[s]) throw new IOException("invalid transition offsets");
+            }
+            if (offsets[numStates] > buffer.remaining() / 8) throw new IOException("invalid transition offsets");
+            int[] edges = new int[2 * offsets[numStates]];
+            buffer.asIntBuffer().get(edges);
+            buffer.position(buffer.position() + 4 * edges.length);
+
+            NFAImpl nfa = new NFAImpl(numStates, alphabet, acceptingStates, initialState);
+            for (int s = 0; s < numStates; s++) {
+                for (int e = offsets[s]; e < offsets[s + 1]; e++) {
+                    int symbol = edges[2 * e];
+                    if (symbol < -1 || symbol > Character.MAX_VALUE || symbol >= 0 && !chars.contains((char) symbol)) {
+                        throw new IOException("invalid transition");
+                    }
+                    nfa.addTransition(s, symbol < 0 ? null : (char) symbol, state(edges[2 * e + 1], numStates));
+                }
+            }
+            int numRangeTransitions = count(buffer, 12);
+            for (int i = 0; i < numRangeTransitions; i++) {
+                int from = state(buffer.getInt(), numStates);
+                int to = state(buffer.getInt(), numStates);
+                CharRanges range = readRanges(buffer);
+                if (!range.isSubsetOf(chars)) throw new IOException("invalid transition");
+                nfa.addRangeTransition(from, range, to);
+            }
+            return nfa;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) {
+            throw new IOException("corrupt automaton file", e);
+        }
+    }
+
+    //eine Anzahl, die noch in den Rest der Datei passt (mindestens bytesPerItem Bytes pro Eintrag)
+    private static int count(ByteBuffer buffer, int bytesPerItem) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / bytesPerItem) throw new IOException("invalid count " + count);
+        return count;
+    }
+
+    private static int state(int s, int numStates) throws IOException {
+        if (s < 0 || s >= numStates) throw new IOException("invalid state " + s);
+        return s;
+    }
+
+    //aufsteigende, disjunkte Bereiche, wie writeRanges sie schreibt
+    private static CharRanges readRanges(ByteBuffer buffer) throws IOException {
+        char[] ranges = new char[2 * count(buffer, 4)];
+        for (int i = 0; i < ranges.length; i += 2) {
+            ranges[i] = buffer.getChar();
+            ranges[i + 1] = buffer.getChar();
+            if (ranges[i + 1] < ranges[i] || i > 0 && ranges[i] <= ranges[i - 1] + 1) throw new IOException("invalid character ranges");
+        }
+        return CharRanges.ofRanges(ranges, ranges.length);
+    }
+}
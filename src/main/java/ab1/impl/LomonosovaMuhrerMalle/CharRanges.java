@@ -0,0 +1,281 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Unveraenderliche Menge von Zeichen, gespeichert als sortierte, disjunkte Bereiche [lo, hi].
+ * Da sie ein Set<Character> ist, kann sie ueberall als Alphabet verwendet werden
+ * (z.B. CharRanges.ALL fuer alle UTF-16-Zeichen), ohne jedes Zeichen einzeln abzulegen.
+ * Mit NFAImpl.setRangeTransition beschriftet sie auch Uebergaenge.
+ * contains ist eine binaere Suche ueber die Bereiche.
+ */
+public final class CharRanges extends AbstractSet<Character> {
+    public static final CharRanges EMPTY = new CharRanges(new char[0]);
+    public static final CharRanges ALL = range(Character.MIN_VALUE, Character.MAX_VALUE);
+
+    //bounds[2i] .. bounds[2i + 1] ist der i-te Bereich (beide inklusive), aufsteigend, Bereiche beruehren sich nicht
+    private final char[] bounds;
+    private final int size;
+
+    private CharRanges(char[] bounds) {
+        this.bounds = bounds;
+        int count = 0;
+        for (int i = 0; i < bounds.length; i += 2) count += bounds[i + 1] - bounds[i] + 1;
+        size = count;
+    }
+
+    public static CharRanges range(char lo, char hi) throws IllegalArgumentException {
+        if (hi < lo) throw new IllegalArgumentException("invalid range " + lo + "-" + hi);
+        return new CharRanges(new char[]{lo, hi});
+    }
+
+    public static CharRanges of(char... chars) {
+        char[] sorted = chars.clone();
+        Arrays.sort(sorted);
+        return ofSorted(sorted, sorted.length);
+    }
+
+    //alle Zeichen, fuer die predicate gilt, z.B. matching(Character::isLetter)
+    public static CharRanges matching(IntPredicate predicate) {
+        char[] chars = new char[Character.MAX_VALUE + 1];
+        int count = 0;
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            if (predicate.test(c)) chars[count++] = (char) c;
+        }
+        return ofSorted(chars, count);
+    }
+
+    //liefert chars selbst, wenn es schon eine CharRanges ist
+    public static CharRanges copyOf(Collection<Character> chars) {
+        if (chars instanceof CharRanges) return (CharRanges) chars;
+        char[] sorted = new char[chars.size()];
+        int count = 0;
+        for (char c : chars) sorted[count++] = c;
+        Arrays.sort(sorted);
+        return ofSorted(sorted, count);
+    }
+
+    //fasst aufeinanderfolgende Zeichen der sortierten Liste (Duplikate erlaubt) zu Bereichen zusammen
+    private static CharRanges ofSorted(char[] chars, int count) {
+        char[] bounds = new char[2 * count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n > 0 && chars[i] <= bounds[n - 1] + 1) {
+                bounds[n - 1] = (char) Math.max(bounds[n - 1], chars[i]);
+            } else {
+                bounds[n++] = chars[i];
+                bounds[n++] = chars[i];
+            }
+        }
+        return new CharRanges(Arrays.copyOf(bounds, n));
+    }
+
+    //aus aufsteigenden, disjunkten Bereichen ranges[2i] .. ranges[2i + 1] (length Eintraege), angrenzende werden verschmolzen
+    static CharRanges ofRanges(char[] ranges, int length) {
+        char[] result = new char[length];
+        int n = 0;
+        for (int i = 0; i < length; i += 2) {
+            if (n > 0 && ranges[i] == result[n - 1] + 1) {
+                result[n - 1] = ranges[i + 1];
+            } else {
+                result[n++] = ranges[i];
+                result[n++] = ranges[i + 1];
+            }
+        }
+        return new CharRanges(Arrays.copyOf(result, n));
+    }
+
+    public CharRanges union(CharRanges other) {
+        if (other.bounds.length == 0) return this;
+        if (bounds.length == 0) return other;
+        char[] result = new char[bounds.length + other.bounds.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length || j < other.bounds.length) {
+            //naechster Bereich nach Anfang, angrenzende und ueberlappende werden verschmolzen
+            char lo;
+            char hi;
+            if (j >= other.bounds.length || i < bounds.length && bounds[i] <= other.bounds[j]) {
+                lo = bounds[i];
+                hi = bounds[i + 1];
+                i += 2;
+            } else {
+                lo = other.bounds[j];
+                hi = other.bounds[j + 1];
+                j += 2;
+            }
+            if (n > 0 && lo <= result[n - 1] + 1) {
+                result[n - 1] = (char) Math.max(result[n - 1], hi);
+            } else {
+                result[n++] = lo;
+                result[n++] = hi;
+            }
+        }
+        return new CharRanges(Arrays.copyOf(result, n));
+    }
+
+    public CharRanges intersect(CharRanges other) {
+        char[] result = new char[bounds.length + other.bounds.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length && j < other.bounds.length) {
+            char lo = (char) Math.max(bounds[i], other.bounds[j]);
+            char hi = (char) Math.min(bounds[i + 1], other.bounds[j + 1]);
+            if (lo <= hi) {
+                result[n++] = lo;
+                result[n++] = hi;
+            }
+            //der Bereich, der zuerst endet, kann nichts mehr ueberlappen
+            if (bounds[i + 1] < other.bounds[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return n == bounds.length && Arrays.equals(result, 0, n, bounds, 0, n) ? this : new CharRanges(Arrays.copyOf(result, n));
+    }
+
+    //alle Zeichen, die nicht in dieser Menge sind
+    public CharRanges complement() {
+        char[] result = new char[bounds.length + 2];
+        int n = 0;
+        int next = Character.MIN_VALUE;
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i] > next) {
+                result[n++] = (char) next;
+                result[n++] = (char) (bounds[i] - 1);
+            }
+            next = bounds[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            result[n++] = (char) next;
+            result[n++] = Character.MAX_VALUE;
+        }
+        return new CharRanges(Arrays.copyOf(result, n));
+    }
+
+    public CharRanges minus(CharRanges other) {
+        if (other.bounds.length == 0) return this;
+        return intersect(other.complement());
+    }
+
+    public int numRanges() {
+        return bounds.length / 2;
+    }
+
+    public char rangeStart(int i) {
+        return bounds[2 * i];
+    }
+
+    public char rangeEnd(int i) {
+        return bounds[2 * i + 1];
+    }
+
+    public char first() throws NoSuchElementException {
+        if (bounds.length == 0) throw new NoSuchElementException();
+        return bounds[0];
+    }
+
+    public boolean contains(char c) {
+        int lo = 0;
+        int hi = bounds.length / 2 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c < bounds[2 * mid]) {
+                hi = mid - 1;
+            } else if (c > bounds[2 * mid + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //ob alle Zeichen auch in set sind (ohne einzeln zu pruefen, wenn set auch eine CharRanges ist)
+    boolean isSubsetOf(Set<Character> set) {
+        if (set instanceof CharRanges) return intersect((CharRanges) set) == this;
+        for (int i = 0; i < bounds.length; i += 2) {
+            for (int c = bounds[i]; c <= bounds[i + 1]; c++) {
+                if (!set.contains((char) c)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Character && contains(((Character) o).charValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bounds.length == 0;
+    }
+
+    @Override
+    public Iterator<Character> iterator() {
+        return new Iterator<Character>() {
+            private int range = 0;
+            private int next = bounds.length == 0 ? 0 : bounds[0];
+
+            @Override
+            public boolean hasNext() {
+                return range < bounds.length;
+            }
+
+            @Override
+            public Character next() {
+                if (range >= bounds.length) throw new NoSuchElementException();
+                char c = (char) next;
+                if (next == bounds[range + 1]) {
+                    range += 2;
+                    if (range < bounds.length) next = bounds[range];
+                } else {
+                    next++;
+                }
+                return c;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof CharRanges) return Arrays.equals(bounds, ((CharRanges) o).bounds);
+        return super.equals(o);
+    }
+
+    //wie bei Set: Summe der Hashcodes aller Zeichen, pro Bereich als arithmetische Reihe
+    @Override
+    public int hashCode() {
+        long hash = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            hash += ((long) bounds[i] + bounds[i + 1]) * (bounds[i + 1] - bounds[i] + 1) / 2;
+        }
+        return (int) hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (i > 0) result.append(", ");
+            result.append(bounds[i]);
+            if (bounds[i + 1] != bounds[i]) result.append('-').append(bounds[i + 1]);
+        }
+        return result.append(']').toString();
+    }
+}
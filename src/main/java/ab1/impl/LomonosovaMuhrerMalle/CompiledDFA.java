@@ -0,0 +1,429 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uebersetzt einen DFAImpl zur Laufzeit in Bytecode (eine versteckte Klasse ueber
+ * Lookup.defineHiddenClass). Jeder erreichbare Zustand wird ein eigener Codeblock:
+ * Wortende pruefen (dann direkt akzeptieren oder nicht), ein Zeichen lesen, per
+ * tableswitch/lookupswitch zum Block des Folgezustands springen. Der Zustand steckt
+ * also in der Position im Code, es gibt keine Tabellenzugriffe mehr.
+ * Hat ein Zustand Uebergaenge mit vielen Zeichen (Bereiche, z.B. bei CharRanges.ALL),
+ * waere ein switch pro Zeichen zu gross; dann wird stattdessen binaer ueber die Grenzen
+ * der Bereiche verzweigt (siehe rangeTree), die Anzahl der Vergleiche ist logarithmisch
+ * in der Anzahl der Bereiche.
+ * Am meisten bringt das bei kleinen DFAs und langen Eingaben mit vorhersagbaren
+ * Uebergaengen (Tokenizer); bei grossen, zufaellig durchlaufenen DFAs ist die
+ * Tabelle (NFAMatcher, FrozenDFA) schneller, weil dort keine Sprungvorhersage noetig ist.
+ *
+ * Die Klasse wird ohne StackMapTable als Version 49 erzeugt (alter Verifier), eine
+ * Bibliothek wie ASM ist dafuer nicht noetig. Wird die Methode zu gross fuer die
+ * 64 KB einer JVM-Methode, arbeitet der Matcher stattdessen mit einem FrozenDFA.
+ * Thread-safe (der erzeugte Code hat keinen Zustand).
+ */
+public final class CompiledDFA {
+    private static final int MAX_CODE = 65535;
+    //bis zu so vielen Zeichen mit Uebergang bekommt ein Zustand einen switch, darueber Vergleiche mit den Bereichsgrenzen
+    private static final int MAX_SWITCH_CHARS = 256;
+
+    private final SymbolTable symbols;
+    //genau eines von beiden ist gesetzt
+    private final GeneratedMatcher generated;
+    private final FrozenDFA interpreter;
+
+    CompiledDFA(DFAImpl dfa) {
+        symbols = dfa.getSymbolTable();
+        byte[] classFile = generate(dfa);
+        if (classFile == null) {
+            generated = null;
+            interpreter = dfa.freeze();
+            return;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            generated = (GeneratedMatcher) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not define generated matcher", e);
+        }
+        interpreter = null;
+    }
+
+    //false, wenn der DFA zu gross war und ein FrozenDFA benutzt wird
+    public boolean isGenerated() {
+        return generated != null;
+    }
+
+    public boolean matches(CharSequence w) throws IllegalCharacterException {
+        if (generated == null) return interpreter.accepts(w);
+        int result = generated.run(w, 0, w.length());
+        if (result >= 0) return result == 1;
+        //kein Folgezustand: die restlichen Zeichen muessen trotzdem im Alphabet sein
+        for (int i = -result - 1; i < w.length(); i++) {
+            if (symbols.indexOf(w.charAt(i)) < 0) throw new IllegalCharacterException();
+        }
+        return false;
+    }
+
+    //prueft die Zeichen buffer[offset .. offset + length - 1]
+    public boolean matches(char[] buffer, int offset, int length) throws IllegalCharacterException {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) throw new IndexOutOfBoundsException();
+        if (generated == null) return interpreter.accepts(CharBuffer.wrap(buffer, offset, length));
+        int result = generated.run(buffer, offset, offset + length);
+        if (result >= 0) return result == 1;
+        for (int i = -result - 1; i < offset + length; i++) {
+            if (symbols.indexOf(buffer[i]) < 0) throw new IllegalCharacterException();
+        }
+        return false;
+    }
+
+    /*
+    Konstantenpool (Index: Eintrag), die Nummern werden in den Methoden direkt verwendet
+     */
+    private static final String CLASS_NAME = "ab1/impl/LomonosovaMuhrerMalle/GeneratedDFAMatcher";
+    private static final String[] POOL = {
+            null,
+            /* 1 */ "U" + CLASS_NAME,
+            /* 2 */ "C1",
+            /* 3 */ "Ujava/lang/Object",
+            /* 4 */ "C3",
+            /* 5 */ "Uab1/impl/LomonosovaMuhrerMalle/GeneratedMatcher",
+            /* 6 */ "C5",
+            /* 7 */ "U<init>",
+            /* 8 */ "U()V",
+            /* 9 */ "N7:8",
+            /* 10 */ "M4:9",
+            /* 11 */ "UCode",
+            /* 12 */ "Urun",
+            /* 13 */ "U([CII)I",
+            /* 14 */ "U(Ljava/lang/CharSequence;II)I",
+            /* 15 */ "Ujava/lang/CharSequence",
+            /* 16 */ "C15",
+            /* 17 */ "UcharAt",
+            /* 18 */ "U(I)C",
+            /* 19 */ "N17:18",
+            /* 20 */ "I16:19",
+    };
+    private static final int OBJECT_INIT = 10;
+    private static final int CHAR_AT = 20;
+
+    //liefert null, wenn der Code zu gross wird
+    private static byte[] generate(DFAImpl dfa) {
+        byte[] arrayCode = generateRun(dfa, false);
+        byte[] sequenceCode = generateRun(dfa, true);
+        if (arrayCode == null || sequenceCode == null) return null;
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(POOL.length);
+            for (int i = 1; i < POOL.length; i++) {
+                String entry = POOL[i];
+                String[] refs = entry.substring(1).split(":");
+                switch (entry.charAt(0)) {
+                    case 'U':
+                        out.writeByte(1);
+                        out.writeUTF(entry.substring(1));
+                        break;
+                    case 'C':
+                        out.writeByte(7);
+                        out.writeShort(Integer.parseInt(refs[0]));
+                        break;
+                    case 'N':
+                        out.writeByte(12);
+                        out.writeShort(Integer.parseInt(refs[0]));
+                        out.writeShort(Integer.parseInt(refs[1]));
+                        break;
+                    case 'M':
+                        out.writeByte(10);
+                        out.writeShort(Integer.parseInt(refs[0]));
+                        out.writeShort(Integer.parseInt(refs[1]));
+                        break;
+                    default:
+                        out.writeByte(11);
+                        out.writeShort(Integer.parseInt(refs[0]));
+                        out.writeShort(Integer.parseInt(refs[1]));
+                }
+            }
+            out.writeShort(0x0031);  //public final super
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(1);
+            out.writeShort(6);
+            out.writeShort(0);  //keine Felder
+
+            out.writeShort(3);
+            //Konstruktor: super()
+            writeMethod(out, 7, 8, 1, 1, new byte[]{0x2a, (byte) 0xb7, 0, OBJECT_INIT, (byte) 0xb1});
+            writeMethod(out, 12, 13, 2, 5, arrayCode);
+            writeMethod(out, 12, 14, 2, 5, sequenceCode);
+            out.writeShort(0);  //keine Attribute
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001);  //public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(11);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);  //keine Exception-Tabelle
+        out.writeShort(0);  //keine Attribute
+    }
+
+    /*
+    Code fuer run(buffer/sequence, i, end), lokale Variablen: 1 = Eingabe, 2 = i, 3 = end, 4 = Zeichen (Bereichsmodus).
+    Pro Zustand s (Startzustand zuerst, danach in BFS-Reihenfolge):
+        if (i >= end) return accepting(s) ? 1 : 0;
+        switch (eingabe[i++]) { case c: goto Block(Folgezustand); ... default: return -i; }
+    bzw. bei mehr als MAX_SWITCH_CHARS Zeichen mit Uebergang die Vergleiche aus rangeTree statt des switch.
+    Die switch-Befehle springen nicht direkt in die Bloecke, sondern ueber ein goto_w: Rueckspruenge
+    aus einem switch zaehlen im Interpreter nicht als Schleife, der Code wuerde sonst nie kompiliert.
+     */
+    private static byte[] generateRun(DFAImpl dfa, boolean sequence) {
+        SymbolTable symbols = dfa.getSymbolTable();
+        int k = symbols.size();
+        int[] table = dfa.getTransitionTable();
+
+        //erreichbare Zustaende in BFS-Reihenfolge
+        int[] index = new int[dfa.getNumStates()];
+        Arrays.fill(index, -1);
+        int[] order = new int[dfa.getNumStates()];
+        int n = 0;
+        index[dfa.getInitialState()] = n;
+        order[n++] = dfa.getInitialState();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                int t = table[order[i] * k + j];
+                if (t >= 0 && index[t] < 0) {
+                    index[t] = n;
+                    order[n++] = t;
+                }
+            }
+        }
+        if (n > Short.MAX_VALUE) return null;
+
+        //Labels: feste Sprungziele, dann pro Zustand i sein Block (STATE + i) und der Sprung dorthin (STATE + n + i)
+        Code code = new Code(STATE + 2 * n);
+        int jumpTo = STATE + n;
+
+        //Bereiche mit Uebergang: runStart[r] .. runEnd[r] springt zu runTarget[r] (Abschnitte mit gleichem Ziel verschmolzen)
+        int numSegments = symbols.numSegments();
+        int[] runStart = new int[numSegments];
+        int[] runEnd = new int[numSegments];
+        int[] runTarget = new int[numSegments];
+        int[] keys = new int[MAX_SWITCH_CHARS];
+        int[] targets = new int[MAX_SWITCH_CHARS];
+        for (int i = 0; i < n; i++) {
+            int s = order[i];
+            code.label(STATE + i);
+            code.bytes(0x1c, 0x1d, 0xa1, 0, 5);  //iload_2, iload_3, if_icmplt +5
+            code.bytes(dfa.isAcceptingState(s) ? 0x04 : 0x03, 0xac);  //iconst_1/0, ireturn
+            if (sequence) {
+                code.bytes(0x2b, 0x1c, 0xb9, 0, CHAR_AT, 2, 0);  //aload_1, iload_2, invokeinterface charAt
+            } else {
+                code.bytes(0x2b, 0x1c, 0x34);  //aload_1, iload_2, caload
+            }
+            code.bytes(0x84, 2, 1);  //iinc 2 1
+            int runs = 0;
+            int covered = 0;
+            for (int g = 0; g < numSegments; g++) {
+                int t = table[s * k + symbols.segmentColumn(g)];
+                if (t < 0) continue;
+                covered += symbols.segmentEnd(g) - symbols.segmentStart(g) + 1;
+                if (runs > 0 && runTarget[runs - 1] == index[t] && runEnd[runs - 1] + 1 == symbols.segmentStart(g)) {
+                    runEnd[runs - 1] = symbols.segmentEnd(g);
+                } else {
+                    runStart[runs] = symbols.segmentStart(g);
+                    runEnd[runs] = symbols.segmentEnd(g);
+                    runTarget[runs++] = index[t];
+                }
+            }
+            if (covered > MAX_SWITCH_CHARS) {
+                code.bytes(0x11, 0x80, 0x00, 0x60, 0x36, 4);  //sipush -32768, iadd, istore 4
+                rangeTree(code, runStart, runEnd, runTarget, runs);
+                if (code.size() > MAX_CODE) return null;
+                continue;
+            }
+
+            //case-Marken sind die einzelnen Zeichen, Zeichen einer Klasse springen zum selben Ziel
+            int count = 0;
+            for (int r = 0; r < runs; r++) {
+                for (int c = runStart[r]; c <= runEnd[r]; c++) {
+                    keys[count] = c;
+                    targets[count++] = jumpTo + runTarget[r];
+                }
+            }
+            if (count > 0 && keys[count - 1] - keys[0] + 1 <= 2 * count + 8) {
+                //dicht genug fuer tableswitch, Luecken gehen zu FAIL
+                int[] range = new int[keys[count - 1] - keys[0] + 1];
+                Arrays.fill(range, FAIL);
+                for (int j = 0; j < count; j++) range[keys[j] - keys[0]] = targets[j];
+                code.tableSwitch(keys[0], range, range.length, FAIL);
+            } else {
+                code.lookupSwitch(keys, targets, count, FAIL);
+            }
+            if (code.size() > MAX_CODE) return null;
+        }
+        //Spruenge zu den Zustaenden ueber goto_w, damit der Interpreter die Schleifen erkennt und der JIT sie uebersetzt
+        for (int i = 0; i < n; i++) {
+            code.label(jumpTo + i);
+            code.jump(STATE + i);
+        }
+        code.label(FAIL);
+        code.bytes(0x1c, 0x74, 0xac);  //iload_2, ineg, ireturn
+        if (code.size() > MAX_CODE) return null;
+        return code.toByteArray();
+    }
+
+    /*
+    Bereichsmodus: das Zeichen liegt (um -32768 verschoben, damit jede Grenze in sipush passt) in Variable 4.
+    Die Bereiche und die Luecken dazwischen (-> FAIL) teilen 0 .. 0xFFFF in Intervalle; binaere Suche ueber
+    deren Anfaenge mit if_icmpge, am Blatt ein goto_w direkt in den Block des Folgezustands (ein Rueckwaertssprung,
+    den der Interpreter als Schleife erkennt).
+     */
+    private static void rangeTree(Code code, int[] runStart, int[] runEnd, int[] runTarget, int runs) {
+        int[] bounds = new int[2 * runs + 1];
+        int[] labels = new int[2 * runs + 1];
+        int m = 0;
+        int next = 0;
+        for (int r = 0; r < runs; r++) {
+            if (runStart[r] > next) {
+                bounds[m] = next;
+                labels[m++] = FAIL;
+            }
+            bounds[m] = runStart[r];
+            labels[m++] = STATE + runTarget[r];
+            next = runEnd[r] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            bounds[m] = next;
+            labels[m++] = FAIL;
+        }
+        rangeTree(code, bounds, labels, 0, m);
+    }
+
+    //Intervalle lo .. hi - 1: Zeichen >= bounds[mid] rechts (direkt im Anschluss), sonst per goto_w nach links
+    private static void rangeTree(Code code, int[] bounds, int[] labels, int lo, int hi) {
+        if (hi - lo == 1) {
+            code.jump(labels[lo]);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int bound = bounds[mid] - 32768;
+        int left = code.newLabel();
+        code.bytes(0x15, 4, 0x11, bound >>> 8 & 0xff, bound & 0xff);  //iload 4, sipush bound
+        code.bytes(0xa2, 0, 8);  //if_icmpge +8 (hinter das goto_w)
+        code.jump(left);
+        rangeTree(code, bounds, labels, mid, hi);
+        code.label(left);
+        rangeTree(code, bounds, labels, lo, mid);
+    }
+
+    private static final int FAIL = 0;
+    private static final int STATE = 1;
+
+    //Bytecode mit Sprungzielen (Labels), alle Sprungweiten sind 4 Byte und werden am Ende eingesetzt
+    private static final class Code {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int[] labels;
+        private int numLabels;
+        //(Position der Sprungweite, Adresse des Sprungbefehls, Label)
+        private final List<int[]> fixups = new ArrayList<>();
+
+        Code(int numLabels) {
+            labels = new int[numLabels];
+            this.numLabels = numLabels;
+        }
+
+        //ein weiteres Label nach den im Konstruktor angegebenen
+        int newLabel() {
+            if (numLabels == labels.length) labels = Arrays.copyOf(labels, 2 * numLabels);
+            return numLabels++;
+        }
+
+        void bytes(int... values) {
+            for (int value : values) out.write(value);
+        }
+
+        void int32(int value) {
+            bytes(value >>> 24, value >>> 16, value >>> 8, value);
+        }
+
+        void label(int label) {
+            labels[label] = out.size();
+        }
+
+        private void target(int address, int label) {
+            fixups.add(new int[]{out.size(), address, label});
+            int32(0);
+        }
+
+        //goto_w
+        void jump(int label) {
+            int address = out.size();
+            bytes(0xc8);
+            target(address, label);
+        }
+
+        //tableswitch ueber low .. low + count - 1, die Operanden beginnen an einer durch 4 teilbaren Adresse
+        void tableSwitch(int low, int[] targets, int count, int defaultLabel) {
+            int address = out.size();
+            bytes(0xaa);
+            while (out.size() % 4 != 0) out.write(0);
+            target(address, defaultLabel);
+            int32(low);
+            int32(low + count - 1);
+            for (int i = 0; i < count; i++) target(address, targets[i]);
+        }
+
+        //lookupswitch, keys aufsteigend
+        void lookupSwitch(int[] keys, int[] targets, int count, int defaultLabel) {
+            int address = out.size();
+            bytes(0xab);
+            while (out.size() % 4 != 0) out.write(0);
+            target(address, defaultLabel);
+            int32(count);
+            for (int i = 0; i < count; i++) {
+                int32(keys[i]);
+                target(address, targets[i]);
+            }
+        }
+
+        int size() {
+            return out.size();
+        }
+
+        byte[] toByteArray() {
+            byte[] result = out.toByteArray();
+            for (int[] fixup : fixups) {
+                int offset = labels[fixup[2]] - fixup[1];
+                result[fixup[0]] = (byte) (offset >>> 24);
+                result[fixup[0] + 1] = (byte) (offset >>> 16);
+                result[fixup[0] + 2] = (byte) (offset >>> 8);
+                result[fixup[0] + 3] = (byte) offset;
+            }
+            return result;
+        }
+    }
+}
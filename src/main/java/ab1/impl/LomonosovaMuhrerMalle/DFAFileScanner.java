@@ -0,0 +1,146 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import ab1.exceptions.IllegalCharacterException;
+
+/**
+ * Laesst einen DFAImpl direkt ueber eine Datei laufen, ohne sie in Strings zu
+ * lesen: die Datei wird mit FileChannel.map abschnittsweise eingeblendet, jedes
+ * Byte ist ein Zeichen (ISO-8859-1, also Zeichen 0 bis 255). Wie bei accepts
+ * loest ein gelesenes Byte, das nicht im Alphabet ist, eine
+ * IllegalCharacterException aus, auch wenn der DFA schon keinen Folgezustand
+ * mehr hat. Gemeldet werden Positionen in Bytes, end ist exklusiv.
+ */
+public final class DFAFileScanner {
+    //so viel wird hoechstens auf einmal eingeblendet (MappedByteBuffer ist auf int-Indizes beschraenkt)
+    private static final long MAX_REGION = 1L << 30;
+
+    private static final int DEAD = -1;
+
+    public interface MatchListener {
+        void match(long start, long end);
+    }
+
+    //Byte -> Spalte der Tabelle, -1 wenn das Zeichen nicht im Alphabet ist
+    private final int[] byteToSymbol = new int[256];
+    private final int numSymbols;
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int initialState;
+
+    DFAFileScanner(DFAImpl dfa) {
+        SymbolTable symbols = dfa.getSymbolTable();
+        numSymbols = symbols.size();
+        table = dfa.getTransitionTable().clone();
+        for (int b = 0; b < 256; b++) {
+            byteToSymbol[b] = symbols.indexOf((char) b);
+        }
+        accepting = new boolean[dfa.getNumStates()];
+        for (int s : dfa.getAcceptingStates()) {
+            if (dfa.isExistingState(s)) accepting[s] = true;
+        }
+        initialState = dfa.getInitialState();
+    }
+
+    private int step(int state, int b) throws IllegalCharacterException {
+        int symbol = byteToSymbol[b];
+        if (symbol < 0) throw new IllegalCharacterException();
+        return state == DEAD ? DEAD : table[state * numSymbols + symbol];
+    }
+
+    /*
+    Jede Zeile ('\n' beendet eine Zeile, ein '\r' direkt davor gehoert nicht dazu) ist ein Wort.
+    Fuer jede akzeptierte Zeile wird listener.match(Zeilenanfang, Zeilenende) aufgerufen.
+    Die Zeilenenden selbst muessen nicht im Alphabet sein, ein einzelnes '\r' gehoert aber zum Wort.
+    Rueckgabe: Anzahl akzeptierter Zeilen
+     */
+    public long scanLines(Path file, MatchListener listener) throws IOException, IllegalCharacterException {
+        long matches = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long lineStart = 0;
+            int state = initialState;
+            //das letzte Byte war ein '\r', es wird erst verarbeitet, wenn kein '\n' folgt
+            boolean afterReturn = false;
+            for (long regionStart = 0; regionStart < size; regionStart += MAX_REGION) {
+                int length = (int) Math.min(MAX_REGION, size - regionStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+                for (int i = 0; i < length; i++) {
+                    int b = buffer.get(i) & 0xff;
+                    if (b == '\n') {
+                        long lineEnd = regionStart + i - (afterReturn ? 1 : 0);
+                        if (state != DEAD && accepting[state]) {
+                            listener.match(lineStart, lineEnd);
+                            matches++;
+                        }
+                        lineStart = regionStart + i + 1;
+                        state = initialState;
+                        afterReturn = false;
+                        continue;
+                    }
+                    if (afterReturn) state = step(state, '\r');
+                    afterReturn = b == '\r';
+                    if (!afterReturn) state = step(state, b);
+                }
+            }
+            if (afterReturn) state = step(state, '\r');
+            //letzte Zeile ohne abschliessendes '\n'
+            if (lineStart < size && state != DEAD && accepting[state]) {
+                listener.match(lineStart, size);
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /*
+    Die ganze Datei ist ein Wort. Fuer jedes akzeptierte Praefix wird listener.match(0, Praefixende)
+    aufgerufen, das Lesen endet, sobald der DFA keinen Folgezustand mehr hat (der Rest wird nicht geprueft).
+    Rueckgabe: Anzahl akzeptierter Praefixe
+     */
+    public long scanPrefixes(Path file, MatchListener listener) throws IOException, IllegalCharacterException {
+        long matches = 0;
+        int state = initialState;
+        if (accepting[state]) {
+            listener.match(0, 0);
+            matches++;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long regionStart = 0; regionStart < size; regionStart += MAX_REGION) {
+                int length = (int) Math.min(MAX_REGION, size - regionStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+                for (int i = 0; i < length; i++) {
+                    state = step(state, buffer.get(i) & 0xff);
+                    if (state == DEAD) return matches;
+                    if (accepting[state]) {
+                        listener.match(0, regionStart + i + 1);
+                        matches++;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    //true, wenn der ganze Dateiinhalt vom DFA akzeptiert wird
+    public boolean accepts(Path file) throws IOException, IllegalCharacterException {
+        int state = initialState;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long regionStart = 0; regionStart < size; regionStart += MAX_REGION) {
+                int length = (int) Math.min(MAX_REGION, size - regionStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+                for (int i = 0; i < length; i++) {
+                    state = step(state, buffer.get(i) & 0xff);
+                }
+            }
+        }
+        return state != DEAD && accepting[state];
+    }
+}
@@ -3,20 +3,64 @@ package ab1.impl.LomonosovaMuhrerMalle;
 import ab1.DFA;
 import ab1.exceptions.IllegalCharacterException;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 public class DFAImpl extends NFAImpl implements DFA {
     private int currentState;
+    //Zeichen -> Spalte der Transitionstabelle
+    private SymbolTable symbols;
+    //table[s * stride + i] = Folgezustand von s mit den Zeichen der Spalte i, -1 wenn es keinen gibt
+    private int[] table;
+    //Zeilenbreite von table, mindestens symbols.size(); Reserve, damit beim Teilen einer Spalte nur diese kopiert wird
+    private int stride;
 
     //constructor (calls the constructor of the superclass)
     public DFAImpl(int numStates, Set<Character> alphabet, Set<Integer> acceptingStates, int initialState) {
         super(numStates, alphabet, acceptingStates, initialState);
         currentState = initialState;
+        //bei einem Bereichs-Alphabet teilen sich anfangs alle Zeichen eine Spalte, geteilt wird erst bei setTransition
+        symbols = alphabet instanceof CharRanges ? SymbolTable.singleColumn(alphabet) : new SymbolTable(alphabet);
+        stride = symbols.size();
+        table = new int[numStates * stride];
+        Arrays.fill(table, -1);
+    }
+
+    //Zeichen -> Spalte ist schon bekannt (z.B. Minterme einer Produktkonstruktion), noch ohne Uebergaenge
+    DFAImpl(int numStates, Set<Character> alphabet, Set<Integer> acceptingStates, int initialState, SymbolTable symbols) {
+        this(numStates, alphabet, acceptingStates, initialState, symbols, emptyTable(numStates * symbols.size()));
+    }
+
+    //uebernimmt eine fertige Transitionstabelle (Zeilenbreite symbols.size(), mindestens numStates * symbols.size() Eintraege)
+    DFAImpl(int numStates, Set<Character> alphabet, Set<Integer> acceptingStates, int initialState, SymbolTable symbols, int[] table) {
+        super(numStates, alphabet, acceptingStates, initialState);
+        currentState = initialState;
+        this.symbols = symbols;
+        this.table = table;
+        stride = symbols.size();
+    }
+
+    private static int[] emptyTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, -1);
+        return table;
     }
 
     @Override
     public void setNumStates(int numStates) {
         super.setNumStates(numStates);
+        int size = numStates * stride;
+        if (size > table.length) {
+            int oldSize = table.length;
+            table = Arrays.copyOf(table, Math.max(size, 2 * oldSize));
+            Arrays.fill(table, oldSize, table.length, -1);
+        }
     }
 
     @Override
@@ -40,31 +84,32 @@ public class DFAImpl extends NFAImpl implements DFA {
 
     @Override
     public int doStep(char c) throws IllegalCharacterException, IllegalStateException {
-        if (!isExistingChar(c)) {
+        int symbol = symbols.indexOf(c);
+        if (symbol < 0) {
             throw new IllegalCharacterException();
         }
-        if (getNextState(currentState, c) == null) {
+        int next = table[currentState * stride + symbol];
+        if (next < 0) {
             throw new IllegalStateException();
         }
-        currentState = getNextState(currentState, c);
+        currentState = next;
         return currentState;
     }
 
     @Override
     public Integer getNextState(int s, char c) throws IllegalCharacterException, IllegalStateException {
-        if (!isExistingChar(c)) {
+        int symbol = symbols.indexOf(c);
+        if (symbol < 0) {
             throw new IllegalCharacterException();
         }
         if (!isExistingState(s)) {
             throw new IllegalStateException();
         }
 
-        Set<Character>[][] transitions = getTransitions();
-        for (int i = 0; i < transitions.length; i++) {
-            if (transitions[s][i].contains(c)) return i;
-        }
+        int next = table[s * stride + symbol];
         //wenn kein Folgezustand gefunden wurde, return null
-        return null;
+        if (next < 0) return null;
+        return next;
     }
 
     @Override
@@ -81,8 +126,405 @@ public class DFAImpl extends NFAImpl implements DFA {
         if (!isExistingState(fromState) || !isExistingState(toState)){
             throw new IllegalStateException();
         }
-        Set<Character>[][] transitions = getTransitions();
         clearTransitions(fromState, c);
-        transitions[fromState][toState].add(c);
+        super.setTransition(fromState, c, toState);
+    }
+
+    //die Uebergaenge eines DFA stehen nur in der Tabelle, nicht in den Maps von NFAImpl
+    @Override
+    public void clearTransitions(int fromState, Character c) throws IllegalStateException {
+        if (!isExistingState(fromState)) throw new IllegalStateException();
+        int symbol = c == null ? -1 : symbols.indexOf(c);
+        if (symbol >= 0 && table[fromState * stride + symbol] >= 0) {
+            symbol = ownColumn(c);
+            table[fromState * stride + symbol] = -1;
+            transitionsChanged();
+        }
+    }
+
+    //wie bei setTransition sind Epsilon und Zeichen ausserhalb des Alphabets nicht erlaubt (geprueft, bevor etwas geaendert wird)
+    @Override
+    public void setTransitions(Set<Character>[][] transitions) throws IllegalCharacterException {
+        for (Set<Character>[] row : transitions) {
+            for (Set<Character> chars : row) {
+                for (Character c : chars) {
+                    if (c == null || !isExistingChar(c)) throw new IllegalCharacterException();
+                }
+            }
+        }
+        Arrays.fill(table, -1);
+        super.setTransitions(transitions);
+    }
+
+    //haelt die Tabelle synchron, egal ueber welchen Weg der Uebergang gesetzt wird
+    @Override
+    protected void addTransition(int fromState, Character c, int toState) throws IllegalCharacterException {
+        int symbol = c == null ? -1 : symbols.indexOf(c);
+        if (symbol < 0) throw new IllegalCharacterException();
+        if (table[fromState * stride + symbol] == toState) return;
+        symbol = ownColumn(c);
+        //ein ersetzter Uebergang faellt weg, ein neuer kommt nur dazu
+        boolean replaced = table[fromState * stride + symbol] >= 0;
+        table[fromState * stride + symbol] = toState;
+        if (replaced) {
+            transitionsChanged();
+        } else {
+            transitionAdded(fromState, toState);
+        }
+    }
+
+    //ersetzt die Uebergaenge fuer alle Zeichen aus chars, die betroffenen Spalten werden dafuer wenn noetig geteilt
+    @Override
+    protected void addRangeTransition(int fromState, CharRanges chars, int toState) {
+        splitColumns(symbols.split(chars));
+        for (int j = 0; j < symbols.size(); j++) {
+            if (chars.contains(symbols.symbolAt(j))) table[fromState * stride + j] = toState;
+        }
+        transitionsChanged();
+    }
+
+    //mit der eigenen Zeichenaufteilung direkt in die Tabelle
+    @Override
+    void addColumnTransition(int fromState, SymbolTable columns, int column, int toState) {
+        if (columns != symbols) {
+            super.addColumnTransition(fromState, columns, column, toState);
+            return;
+        }
+        if (table[fromState * stride + column] == toState) return;
+        boolean replaced = table[fromState * stride + column] >= 0;
+        table[fromState * stride + column] = toState;
+        if (replaced) {
+            transitionsChanged();
+        } else {
+            transitionAdded(fromState, toState);
+        }
+    }
+
+    @Override
+    SymbolTable symbolClasses() {
+        return columnClasses();
+    }
+
+    @Override
+    Set<Integer> getSuccessors(int state, Character c) {
+        int symbol = c == null ? -1 : symbols.indexOf(c);
+        if (symbol < 0) return Collections.emptySet();
+        int next = table[state * stride + symbol];
+        return next < 0 ? Collections.emptySet() : Collections.singleton(next);
+    }
+
+    //Spalten mit nur einem Zeichen (die uebrigen liefert getRangeSuccessors)
+    @Override
+    Map<Character, Set<Integer>> getSuccessors(int state) {
+        int base = state * stride;
+        Map<Character, Set<Integer>> result = new HashMap<>();
+        for (int j = 0; j < symbols.size(); j++) {
+            if (table[base + j] >= 0 && symbols.classSize(j) == 1) result.put(symbols.symbolAt(j), Collections.singleton(table[base + j]));
+        }
+        return result;
+    }
+
+    //Spalten mit mehreren Zeichen als Bereiche, Spalten zum selben Folgezustand werden vereinigt
+    @Override
+    Map<Integer, CharRanges> getRangeSuccessors(int state) {
+        int base = state * stride;
+        Map<Integer, CharRanges> result = new HashMap<>();
+        for (int j = 0; j < symbols.size(); j++) {
+            if (table[base + j] >= 0 && symbols.classSize(j) > 1) result.merge(table[base + j], symbols.columnRanges(j), CharRanges::union);
+        }
+        return result;
+    }
+
+    //alle Folgezustaende direkt aus der Zeile der Tabelle
+    @Override
+    void forEachSuccessor(int state, IntConsumer action) {
+        int base = state * stride;
+        for (int j = 0; j < symbols.size(); j++) {
+            if (table[base + j] >= 0) action.accept(table[base + j]);
+        }
+    }
+
+    /*
+    Hopcroft:
+    1) nur die erreichbaren Zustaende betrachten und um einen Fallenzustand fuer fehlende Uebergaenge ergaenzen
+    2) Startpartition {akzeptierend, nicht akzeptierend}, dann Bloecke so lange an (Block, Zeichen)-Paaren
+       aus der Worklist aufspalten, bis sich nichts mehr aendert. Von zwei neuen Haelften kommt jeweils nur
+       die kleinere in die Worklist (daher O(n * k * log n), k = Anzahl der Zeichenklassen aus columnClasses).
+    3) jeder Block wird ein Zustand, der Block mit der Falle faellt wieder weg
+     */
+    @Override
+    public DFA minimize() {
+        //Zeichen mit gleichen Spalten muessen nur einmal betrachtet werden; die zusammengefassten Spalten
+        //werden nur lokal berechnet, dieser DFA bleibt unveraendert. source[j] = eine Spalte von table fuer Klasse j
+        SymbolTable columns = columnClasses();
+        int k = columns.size();
+        int[] source = new int[k];
+        for (int j = 0; j < k; j++) source[j] = symbols.indexOf(columns.symbolAt(j));
+
+        //1) erreichbare Zustaende, neu nummeriert in BFS-Reihenfolge
+        int[] index = new int[getNumStates()];
+        Arrays.fill(index, -1);
+        int[] order = new int[getNumStates()];
+        int n = 0;
+        index[getInitialState()] = n;
+        order[n++] = getInitialState();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                int t = table[order[i] * stride + source[j]];
+                if (t >= 0 && index[t] < 0) {
+                    index[t] = n;
+                    order[n++] = t;
+                }
+            }
+        }
+        int sink = n;
+        int total = n + 1;
+        int[] delta = new int[total * k];
+        for (int i = 0; i < total; i++) {
+            for (int j = 0; j < k; j++) {
+                int t = i == sink ? -1 : table[order[i] * stride + source[j]];
+                delta[i * k + j] = t < 0 ? sink : index[t];
+            }
+        }
+
+        //Umkehrung der Uebergaenge pro Zeichen (CSR): Vorgaenger von t mit j in inverse[inverseStart[j * total + t] ..]
+        int[] inverseStart = new int[k * total + 1];
+        for (int i = 0; i < total; i++) {
+            for (int j = 0; j < k; j++) inverseStart[j * total + delta[i * k + j] + 1]++;
+        }
+        for (int i = 0; i < k * total; i++) inverseStart[i + 1] += inverseStart[i];
+        int[] inverse = new int[total * k];
+        int[] fill = Arrays.copyOf(inverseStart, k * total);
+        for (int i = 0; i < total; i++) {
+            for (int j = 0; j < k; j++) inverse[fill[j * total + delta[i * k + j]]++] = i;
+        }
+
+        //2) Partition: elements[first[b] .. end[b]] sind die Zustaende von Block b
+        int[] elements = new int[total];
+        int[] position = new int[total];
+        int[] block = new int[total];
+        int[] first = new int[total];
+        int[] end = new int[total];
+        int[] marked = new int[total];
+        int numBlocks = 0;
+
+        int numAccepting = 0;
+        for (int i = 0; i < n; i++) {
+            if (isAcceptingState(order[i])) numAccepting++;
+        }
+        int acc = 0;
+        int rest = numAccepting;
+        for (int i = 0; i < total; i++) {
+            int pos = i < n && isAcceptingState(order[i]) ? acc++ : rest++;
+            elements[pos] = i;
+            position[i] = pos;
+        }
+        if (numAccepting > 0) {
+            first[numBlocks] = 0;
+            end[numBlocks++] = numAccepting;
+        }
+        first[numBlocks] = numAccepting;
+        end[numBlocks++] = total;
+        for (int b = 0; b < numBlocks; b++) {
+            for (int p = first[b]; p < end[b]; p++) block[elements[p]] = b;
+        }
+
+        boolean[] inWorklist = new boolean[total * k];
+        int[] worklist = new int[total * k];
+        int worklistSize = 0;
+        int smaller = numBlocks == 2 && end[0] - first[0] > end[1] - first[1] ? 1 : 0;
+        for (int j = 0; j < k; j++) {
+            worklist[worklistSize++] = smaller * k + j;
+            inWorklist[smaller * k + j] = true;
+        }
+
+        int[] predecessors = new int[total];
+        int[] touched = new int[total];
+        while (worklistSize > 0) {
+            int splitter = worklist[--worklistSize];
+            inWorklist[splitter] = false;
+            int b = splitter / k;
+            int j = splitter % k;
+
+            //alle Zustaende sammeln, die mit j in den Block b fuehren
+            int numPredecessors = 0;
+            for (int p = first[b]; p < end[b]; p++) {
+                int t = elements[p];
+                for (int q = inverseStart[j * total + t]; q < inverseStart[j * total + t + 1]; q++) {
+                    predecessors[numPredecessors++] = inverse[q];
+                }
+            }
+
+            //markierte Zustaende an den Anfang ihres Blocks verschieben
+            int numTouched = 0;
+            for (int q = 0; q < numPredecessors; q++) {
+                int s = predecessors[q];
+                int y = block[s];
+                if (position[s] < first[y] + marked[y]) continue;
+                if (marked[y] == 0) touched[numTouched++] = y;
+                int swapPos = first[y] + marked[y];
+                int other = elements[swapPos];
+                elements[swapPos] = s;
+                elements[position[s]] = other;
+                position[other] = position[s];
+                position[s] = swapPos;
+                marked[y]++;
+            }
+
+            //Bloecke aufspalten, bei denen nur ein Teil markiert ist
+            for (int t = 0; t < numTouched; t++) {
+                int y = touched[t];
+                int numMarked = marked[y];
+                marked[y] = 0;
+                if (numMarked == end[y] - first[y]) continue;
+
+                int z = numBlocks++;
+                first[z] = first[y];
+                end[z] = first[y] + numMarked;
+                first[y] = end[z];
+                for (int p = first[z]; p < end[z]; p++) block[elements[p]] = z;
+
+                for (int c = 0; c < k; c++) {
+                    int add = inWorklist[y * k + c] || end[z] - first[z] <= end[y] - first[y] ? z : y;
+                    if (!inWorklist[add * k + c]) {
+                        inWorklist[add * k + c] = true;
+                        worklist[worklistSize++] = add * k + c;
+                    }
+                }
+            }
+        }
+
+        //3) Bloecke in BFS-Reihenfolge nummerieren (Startzustand = 0), ohne den Block der Falle
+        int sinkBlock = block[sink];
+        int[] newId = new int[numBlocks];
+        Arrays.fill(newId, -1);
+        int[] blockOrder = new int[numBlocks];
+        int numNew = 0;
+        if (block[0] != sinkBlock) {
+            newId[block[0]] = numNew;
+            blockOrder[numNew++] = block[0];
+        }
+        for (int i = 0; i < numNew; i++) {
+            int representative = elements[first[blockOrder[i]]];
+            for (int j = 0; j < k; j++) {
+                int target = block[delta[representative * k + j]];
+                if (target != sinkBlock && newId[target] < 0) {
+                    newId[target] = numNew;
+                    blockOrder[numNew++] = target;
+                }
+            }
+        }
+
+        Set<Integer> acceptingStates = new HashSet<>();
+        for (int i = 0; i < numNew; i++) {
+            int representative = elements[first[blockOrder[i]]];
+            if (representative < n && isAcceptingState(order[representative])) acceptingStates.add(i);
+        }
+
+        //auch die leere Sprache braucht einen Startzustand
+        int[] minimalTable = new int[Math.max(1, numNew) * k];
+        Arrays.fill(minimalTable, -1);
+        for (int i = 0; i < numNew; i++) {
+            int representative = elements[first[blockOrder[i]]];
+            for (int j = 0; j < k; j++) {
+                int target = block[delta[representative * k + j]];
+                if (target != sinkBlock) minimalTable[i * k + j] = newId[target];
+            }
+        }
+        return inheritOptions(new DFAImpl(Math.max(1, numNew), getAlphabet(), acceptingStates, 0, columns, minimalTable));
+    }
+
+    //wie NFAImpl.trim, aber Zeile fuer Zeile auf der Tabelle (Uebergaenge zu entfernten Zustaenden werden -1)
+    @Override
+    public DFAImpl trim() {
+        int[] newId = trimmedNumbers();
+        int k = symbols.size();
+        int numKept = numKept(newId);
+        int[] trimmedTable = new int[numKept * k];
+        for (int s = 0; s < getNumStates(); s++) {
+            if (newId[s] < 0) continue;
+            for (int j = 0; j < k; j++) {
+                int t = table[s * stride + j];
+                trimmedTable[newId[s] * k + j] = t < 0 ? -1 : newId[t];
+            }
+        }
+        return inheritOptions(new DFAImpl(numKept, getAlphabet(), trimmedAcceptingStates(newId), trimmedInitialState(newId), symbols, trimmedTable));
+    }
+
+    //Spalte nur fuer das Zeichen c, teilt dafuer wenn noetig seine Aequivalenzklasse auf
+    private int ownColumn(char c) {
+        int column = symbols.indexOf(c);
+        if (symbols.classSize(column) == 1) return column;
+        splitColumns(symbols.split(c));
+        return symbols.indexOf(c);
+    }
+
+    //Aequivalenzklassen der Spalten, ohne diesen DFA zu veraendern (fuer NFASimulation und minimize)
+    SymbolTable columnClasses() {
+        return symbols.mergeColumns(table, getNumStates(), stride);
+    }
+
+    /*
+    uebernimmt eine Aufteilung aus SymbolTable.split, die Uebergaenge bleiben gleich: die bisherigen Spalten bleiben,
+    neue kommen hinten dazu und sind Kopien der Spalte, aus der ihre Zeichen stammen. Die Tabelle wird nur umkopiert, wenn
+    die Zeilenbreite nicht reicht, und dann gleich mit doppelter Breite.
+     */
+    private void splitColumns(SymbolTable newSymbols) {
+        if (newSymbols == symbols) return;
+        int oldSize = symbols.size();
+        int newSize = newSymbols.size();
+        int rows = table.length / Math.max(1, stride);
+        if (newSize > stride) {
+            int newStride = Math.max(newSize, 2 * stride);
+            int[] newTable = new int[rows * newStride];
+            for (int s = 0; s < rows; s++) System.arraycopy(table, s * stride, newTable, s * newStride, oldSize);
+            table = newTable;
+            stride = newStride;
+        }
+        for (int i = oldSize; i < newSize; i++) {
+            int column = symbols.indexOf(newSymbols.symbolAt(i));
+            for (int s = 0; s < rows; s++) table[s * stride + i] = table[s * stride + column];
+        }
+        symbols = newSymbols;
+        transitionsChanged();
+    }
+
+    //unveraenderliche, thread-sichere Kopie, siehe FrozenDFA
+    public FrozenDFA freeze() {
+        return new FrozenDFA(this);
+    }
+
+    //zur Laufzeit in Bytecode uebersetzter Matcher, siehe CompiledDFA
+    public CompiledDFA compile() {
+        return new CompiledDFA(this);
+    }
+
+    //Scanner fuer Dateien, siehe DFAFileScanner
+    public DFAFileScanner fileScanner() {
+        return new DFAFileScanner(this);
+    }
+
+    //paralleler Matcher fuer lange Woerter, siehe ParallelDFAMatcher
+    public ParallelDFAMatcher parallelMatcher() {
+        return parallelMatcher(ForkJoinPool.commonPool(), ParallelDFAMatcher.DEFAULT_MIN_CHUNK);
+    }
+
+    public ParallelDFAMatcher parallelMatcher(ForkJoinPool pool, int minChunk) {
+        return new ParallelDFAMatcher(this, pool, minChunk);
+    }
+
+    SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    //die Transitionstabelle mit Zeilenbreite symbols.size() (nur lesen!), siehe table. Hat table Reserve in den
+    //Zeilen, ist das eine kompakte Kopie; dieser DFA wird dabei nicht veraendert, auch nicht bei parallelen Lesern
+    int[] getTransitionTable() {
+        int k = symbols.size();
+        if (stride == k) return table;
+        int rows = table.length / stride;
+        int[] compact = new int[rows * k];
+        for (int s = 0; s < rows; s++) System.arraycopy(table, s * stride, compact, s * k, k);
+        return compact;
     }
 }
@@ -0,0 +1,215 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Produkt von a mit dem (erst bei Bedarf) determinisierten b. Ein Zustand ist ein
+ * Paar (p, S) aus einem Zustand p von a und einer epsilon-abgeschlossenen Teilmenge S
+ * von b. Das Paar akzeptiert, wenn p akzeptiert und S keinen akzeptierenden Zustand
+ * enthaelt, das Produkt erkennt also L(a) \ L(b).
+ * Die Zeichen werden pro Minterm von a und b betrachtet (SymbolTable.product), auch
+ * Bereichsuebergaenge werden so nie in einzelne Zeichen zerlegt.
+ */
+final class DifferenceProduct {
+    private final NFAImpl a;
+    private final NFASimulation bSim;
+    //Zeichenklassen von a, gemeinsame Klassen von a und b (Minterme)
+    private final SymbolTable aSymbols;
+    private SymbolTable symbols;
+
+    //Teilmengen von b: BitSet -> Nummer
+    private final Map<BitSet, Integer> subsetIds = new HashMap<>();
+    private final List<long[]> subsets = new ArrayList<>();
+    //bereits berechnete Uebergaenge der Teilmengen: (Teilmenge << 32 | Zeichenklasse + 1) -> Teilmenge
+    private final Map<Long, Integer> subsetSteps = new HashMap<>();
+    private final long[] buffer;
+
+    //Paare: (Teilmenge << 32 | p) -> Nummer
+    private final Map<Long, Integer> pairIds = new HashMap<>();
+    private int[] pairState = new int[16];
+    private int[] pairSubset = new int[16];
+    //Vorgaenger im Suchbaum und das Zeichen dorthin (-1 = Epsilon), fuer das Gegenbeispiel
+    private int[] parent = new int[16];
+    private int[] via = new int[16];
+    private int numPairs;
+
+    DifferenceProduct(NFAImpl a, NFAImpl b) {
+        this.a = a;
+        this.bSim = b.getSimulation();
+        this.aSymbols = a.symbolClasses();
+        this.symbols = SymbolTable.product(a.getAlphabet(), aSymbols, bSim.symbols());
+        this.buffer = bSim.newSet();
+        bSim.start(buffer);
+        subset(buffer);
+    }
+
+    /*
+    Breitensuche bis zum ersten akzeptierenden Paar, liefert das Wort dorthin oder null.
+    Antichain: ein Paar (p, S) wird nicht weiter verfolgt, wenn schon ein Paar (p, S') mit S' Teilmenge von S
+    gefunden wurde - jedes Gegenbeispiel ab (p, S) ist auch eins ab (p, S'). Pro Zustand p bleiben so nur die
+    minimalen Teilmengen uebrig, und meistens wird nur ein kleiner Teil der Potenzmenge von b besucht.
+    Paare mit einem Zustand p, von dem aus a nichts mehr akzeptiert, werden gar nicht erst verfolgt.
+     */
+    String findCounterexample() {
+        Reachability aReach = a.getReachability();
+        if (aReach.acceptsNothing()) return null;
+        Map<Integer, List<Integer>> minimal = new HashMap<>();
+        boolean[] subsumed = new boolean[16];
+        int start = pair(a.getInitialState(), 0, -1, -1);
+        minimal.computeIfAbsent(pairState[start], k -> new ArrayList<>()).add(start);
+        for (int i = start; i < numPairs; i++) {
+            if (subsumed[i]) continue;
+            if (isAccepting(i)) return wordTo(i);
+
+            int before = numPairs;
+            expand(i, null);
+            if (numPairs > subsumed.length) subsumed = Arrays.copyOf(subsumed, Math.max(numPairs, 2 * subsumed.length));
+
+            for (int next = before; next < numPairs; next++) {
+                if (!aReach.isUseful(pairState[next])) {
+                    subsumed[next] = true;
+                    continue;
+                }
+                List<Integer> antichain = minimal.computeIfAbsent(pairState[next], k -> new ArrayList<>());
+                long[] set = subsets.get(pairSubset[next]);
+                boolean dominated = false;
+                for (int other : antichain) {
+                    if (isSubset(subsets.get(pairSubset[other]), set)) {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (dominated) {
+                    subsumed[next] = true;
+                    continue;
+                }
+                //Obermengen des neuen Paares fliegen aus der Antichain (noch nicht besuchte werden uebersprungen)
+                for (Iterator<Integer> it = antichain.iterator(); it.hasNext(); ) {
+                    int other = it.next();
+                    if (isSubset(set, subsets.get(pairSubset[other]))) {
+                        subsumed[other] = true;
+                        it.remove();
+                    }
+                }
+                antichain.add(next);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSubset(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & ~b[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    //baut den ganzen erreichbaren Teil des Produkts als Automat (deterministisch, wenn a ein DFA ist)
+    NFAImpl build(Set<Character> alphabet, boolean deterministic) {
+        //Minterme ueber das ganze Alphabet des Produkts, ein DFA uebernimmt sie als Spalten
+        symbols = SymbolTable.product(alphabet, aSymbols, bSim.symbols());
+        NFAImpl product = deterministic
+                ? new DFAImpl(1, alphabet, new HashSet<>(), 0, symbols)
+                : new NFAImpl(1, alphabet, new HashSet<>(), 0);
+        Set<Integer> acceptingStates = new HashSet<>();
+        int start = pair(a.getInitialState(), 0, -1, -1);
+        for (int i = start; i < numPairs; i++) {
+            if (isAccepting(i)) acceptingStates.add(i);
+            expand(i, product);
+        }
+        product.setNumStates(numPairs);
+        product.setAcceptingStates(acceptingStates);
+        return product;
+    }
+
+    private boolean isAccepting(int pair) {
+        return a.isAcceptingState(pairState[pair]) && !bSim.isAccepting(subsets.get(pairSubset[pair]));
+    }
+
+    //legt alle Nachfolger des Paares an, traegt die Uebergaenge in product ein (falls nicht null)
+    private void expand(int pair, NFAImpl product) {
+        int p = pairState[pair];
+        int subset = pairSubset[pair];
+        for (int p2 : a.getSuccessors(p, null)) {
+            int next = pair(p2, subset, pair, -1);
+            if (product != null) {
+                if (next >= product.getNumStates()) product.setNumStates(next + 1);
+                product.addTransition(pair, null, next);
+            }
+        }
+        //pro Minterm ein Zeichen stellvertretend fuer alle (Zeichen ausserhalb des Alphabets von a liefern nichts)
+        for (int j = 0; j < symbols.size(); j++) {
+            char c = symbols.symbolAt(j);
+            Set<Integer> targets = a.getSuccessors(p, c);
+            if (targets.isEmpty()) continue;
+            int nextSubset = step(subset, c);
+            for (int p2 : targets) {
+                int next = pair(p2, nextSubset, pair, c);
+                if (product != null) {
+                    if (next >= product.getNumStates()) product.setNumStates(next + 1);
+                    product.addColumnTransition(pair, symbols, j, next);
+                }
+            }
+        }
+    }
+
+    //Nummer des Paares (p, subset), wird beim ersten Auftreten angelegt
+    private int pair(int p, int subset, int from, int c) {
+        long key = (long) subset << 32 | p;
+        Integer id = pairIds.get(key);
+        if (id != null) return id;
+        if (numPairs == pairState.length) {
+            pairState = Arrays.copyOf(pairState, 2 * numPairs);
+            pairSubset = Arrays.copyOf(pairSubset, 2 * numPairs);
+            parent = Arrays.copyOf(parent, 2 * numPairs);
+            via = Arrays.copyOf(via, 2 * numPairs);
+        }
+        pairState[numPairs] = p;
+        pairSubset[numPairs] = subset;
+        parent[numPairs] = from;
+        via[numPairs] = c;
+        pairIds.put(key, numPairs);
+        return numPairs++;
+    }
+
+    //Teilmenge von b nach dem Zeichen c (Zeichen ausserhalb des Alphabets von b fuehren zur leeren Menge)
+    private int step(int subset, char c) {
+        //gespeichert pro Zeichenklasse von b, gleichwertige Zeichen teilen sich den Eintrag
+        int symbol = bSim.indexOf(c);
+        long key = (long) subset << 32 | (symbol + 1);
+        Integer next = subsetSteps.get(key);
+        if (next == null) {
+            bSim.step(subsets.get(subset), buffer, symbol);
+            next = subset(buffer);
+            subsetSteps.put(key, next);
+        }
+        return next;
+    }
+
+    private int subset(long[] set) {
+        BitSet key = BitSet.valueOf(set);
+        Integer id = subsetIds.get(key);
+        if (id == null) {
+            id = subsets.size();
+            subsetIds.put(key, id);
+            subsets.add(set.clone());
+        }
+        return id;
+    }
+
+    private String wordTo(int pair) {
+        StringBuilder word = new StringBuilder();
+        for (int i = pair; parent[i] >= 0; i = parent[i]) {
+            if (via[i] >= 0) word.append((char) via[i]);
+        }
+        return word.reverse().toString();
+    }
+}
@@ -0,0 +1,113 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Epsilon-Huelle aller Zustaende eines NFAImpl. Die starken
+ * Zusammenhangskomponenten des Epsilon-Graphen werden mit Tarjan bestimmt
+ * (iterativ, ohne Rekursion). Alle Zustaende einer Komponente teilen sich
+ * dieselbe Huelle, die aus den Huellen der Nachfolgekomponenten zusammengesetzt wird.
+ */
+final class EpsilonClosure {
+    //Zustand -> Komponente
+    private final int[] component;
+    //Komponente -> Huelle (aufsteigend sortiert)
+    private final int[][] closures;
+
+    EpsilonClosure(NFAImpl nfa) {
+        int n = nfa.getNumStates();
+        int[][] eps = new int[n][];
+        for (int s = 0; s < n; s++) {
+            Set<Integer> targets = nfa.getSuccessors(s, null);
+            eps[s] = new int[targets.size()];
+            int i = 0;
+            for (int t : targets) eps[s][i++] = t;
+        }
+
+        component = new int[n];
+        Arrays.fill(component, -1);
+        int[][] found = new int[n][];
+        int numComponents = 0;
+
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] low = new int[n];
+        int[] edge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] calls = new int[n];
+        int callSize = 0;
+        int counter = 0;
+        int[] mark = new int[n];
+        int[] members = new int[n];
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            calls[callSize++] = root;
+
+            while (callSize > 0) {
+                int v = calls[callSize - 1];
+                if (edge[v] < eps[v].length) {
+                    int w = eps[v][edge[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        calls[callSize++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                callSize--;
+                if (callSize > 0) {
+                    int u = calls[callSize - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+                if (low[v] != index[v]) continue;
+
+                //v ist die Wurzel einer Komponente, alle Nachfolgekomponenten sind schon fertig
+                int c = numComponents++;
+                int stamp = c + 1;
+                int numMembers = 0;
+                int w;
+                do {
+                    w = stack[--stackSize];
+                    onStack[w] = false;
+                    component[w] = c;
+                    mark[w] = stamp;
+                    members[numMembers++] = w;
+                } while (w != v);
+
+                int size = numMembers;
+                int[] closure = Arrays.copyOf(members, numMembers);
+                for (int m = 0; m < numMembers; m++) {
+                    for (int t : eps[members[m]]) {
+                        if (component[t] == c) continue;
+                        for (int q : found[component[t]]) {
+                            if (mark[q] == stamp) continue;
+                            mark[q] = stamp;
+                            if (size == closure.length) closure = Arrays.copyOf(closure, 2 * size);
+                            closure[size++] = q;
+                        }
+                    }
+                }
+                closure = Arrays.copyOf(closure, size);
+                Arrays.sort(closure);
+                found[c] = closure;
+            }
+        }
+        closures = Arrays.copyOf(found, numComponents);
+    }
+
+    //Epsilon-Huelle von state inklusive state selbst (aufsteigend sortiert, nicht veraendern!)
+    int[] of(int state) {
+        return closures[component[state]];
+    }
+}
@@ -0,0 +1,109 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unveraenderliche Kopie eines DFA mit flachen Tabellen (siehe DFAImpl.freeze und
+ * NFAImpl.freeze). Es gibt keinen aktuellen Zustand im Objekt: step(state, c) ist
+ * eine reine Funktion, fuer das schrittweise Abarbeiten holt sich jeder Thread
+ * einen eigenen Cursor. Eine Instanz kann daher ohne Synchronisation von
+ * beliebig vielen Threads gleichzeitig benutzt werden.
+ */
+public final class FrozenDFA {
+    //Rueckgabe von step, wenn es keinen Folgezustand gibt
+    public static final int DEAD = -1;
+
+    private final Set<Character> alphabet;
+    private final SymbolTable symbols;
+    private final int numSymbols;
+    private final int numStates;
+    //table[s * numSymbols + i] = Folgezustand von s mit den Zeichen der Spalte i, DEAD wenn es keinen gibt
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int initialState;
+
+    FrozenDFA(DFAImpl dfa) {
+        symbols = dfa.getSymbolTable();
+        numSymbols = symbols.size();
+        numStates = dfa.getNumStates();
+        table = Arrays.copyOf(dfa.getTransitionTable(), numStates * numSymbols);
+        accepting = new boolean[numStates];
+        for (int s : dfa.getAcceptingStates()) {
+            if (dfa.isExistingState(s)) accepting[s] = true;
+        }
+        initialState = dfa.getInitialState();
+        //CharRanges ist schon unveraenderlich
+        alphabet = dfa.getAlphabet() instanceof CharRanges ? dfa.getAlphabet() : Collections.unmodifiableSet(new HashSet<>(dfa.getAlphabet()));
+    }
+
+    public Set<Character> getAlphabet() {
+        return alphabet;
+    }
+
+    public int getNumStates() {
+        return numStates;
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    //false auch fuer DEAD und Zustaende, die es nicht gibt
+    public boolean isAcceptingState(int state) {
+        return state >= 0 && state < numStates && accepting[state];
+    }
+
+    //Folgezustand von state mit c, DEAD wenn es keinen gibt (auch wenn state schon DEAD ist)
+    public int step(int state, char c) throws IllegalCharacterException, IllegalStateException {
+        int symbol = symbols.indexOf(c);
+        if (symbol < 0) throw new IllegalCharacterException();
+        if (state == DEAD) return DEAD;
+        if (state < 0 || state >= numStates) throw new IllegalStateException();
+        return table[state * numSymbols + symbol];
+    }
+
+    public boolean accepts(CharSequence w) throws IllegalCharacterException {
+        int state = initialState;
+        for (int i = 0; i < w.length(); i++) {
+            int symbol = symbols.indexOf(w.charAt(i));
+            if (symbol < 0) throw new IllegalCharacterException();
+            if (state != DEAD) state = table[state * numSymbols + symbol];
+        }
+        return isAcceptingState(state);
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Aktueller Zustand fuer einen Thread, wie doStep/reset bei DFAImpl.
+     * Ein Cursor selbst ist nicht thread-safe.
+     */
+    public final class Cursor {
+        private int state = initialState;
+
+        public void reset() {
+            state = initialState;
+        }
+
+        //DEAD, sobald es keinen Folgezustand mehr gibt
+        public int doStep(char c) throws IllegalCharacterException {
+            state = step(state, c);
+            return state;
+        }
+
+        public int getCurrentState() {
+            return state;
+        }
+
+        public boolean isInAcceptingState() {
+            return isAcceptingState(state);
+        }
+    }
+}
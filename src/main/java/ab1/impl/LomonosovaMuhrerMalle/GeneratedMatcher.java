@@ -0,0 +1,12 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+/**
+ * Wird von den Klassen implementiert, die CompiledDFA zur Laufzeit erzeugt.
+ * Rueckgabe: 1 = akzeptiert, 0 = nicht akzeptiert, -i = beim Zeichen an Index i - 1
+ * gab es keinen Folgezustand (oder das Zeichen ist nicht im Alphabet).
+ */
+interface GeneratedMatcher {
+    int run(char[] buffer, int from, int to);
+
+    int run(CharSequence sequence, int from, int to);
+}
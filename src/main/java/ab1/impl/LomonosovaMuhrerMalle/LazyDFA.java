@@ -0,0 +1,142 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fuehrt einen NFAImpl wie einen DFA aus, ohne die ganze Potenzmenge zu
+ * konstruieren: Teilmengen und ihre Uebergaenge werden erst angelegt, wenn die
+ * Eingabe sie erreicht, und in einer Tabelle mit begrenzter Groesse
+ * zwischengespeichert. Ist die Tabelle voll, wird sie geleert. Muss sie zu oft
+ * geleert werden, laeuft das aktuelle Wort mit der NFA-Simulation zu Ende.
+ * Nicht thread-safe.
+ */
+public final class LazyDFA {
+    //Standardgroesse des Caches (Anzahl Teilmengen)
+    public static final int DEFAULT_MAX_STATES = 10_000;
+    //lohnt sich der Cache nicht mehr, wenn zwischen zwei Leerungen weniger Zeichen pro Zustand verarbeitet wurden
+    private static final int MIN_CHARS_PER_STATE = 10;
+
+    private static final int UNKNOWN = -2;
+    private static final int DEAD = -1;
+
+    private final NFASimulation sim;
+    private final int numSymbols;
+    private final int maxStates;
+
+    private final Map<BitSet, Integer> ids = new HashMap<>();
+    private final long[][] sets;
+    private final boolean[] accepting;
+    //next[s * numSymbols + i] = Folgezustand, DEAD = leere Menge, UNKNOWN = noch nicht berechnet
+    private final int[] next;
+    private int numStates;
+
+    private final long[] buffer;
+    private final long[] fallback;
+    private long charsSinceFlush;
+    private int flushes;
+    private int fallbacks;
+
+    LazyDFA(NFAImpl nfa, int maxStates) {
+        if (maxStates < 2) throw new IllegalArgumentException("maxStates must be at least 2");
+        this.sim = nfa.getSimulation();
+        this.numSymbols = sim.numSymbols();
+        this.maxStates = maxStates;
+        this.sets = new long[maxStates][];
+        this.accepting = new boolean[maxStates];
+        this.next = new int[maxStates * numSymbols];
+        Arrays.fill(next, UNKNOWN);
+        this.buffer = sim.newSet();
+        this.fallback = sim.newSet();
+    }
+
+    public boolean accepts(CharSequence w) throws IllegalCharacterException {
+        sim.start(buffer);
+        int state = intern(buffer);
+        for (int i = 0; i < w.length(); i++) {
+            int symbol = sim.symbolIndex(w.charAt(i));
+            int target = symbol < 0 ? DEAD : next[state * numSymbols + symbol];
+            if (target == UNKNOWN) {
+                boolean flushed = false;
+                sim.step(sets[state], buffer, symbol);
+                if (NFASimulation.isEmpty(buffer)) {
+                    target = DEAD;
+                } else {
+                    Integer id = ids.get(BitSet.valueOf(buffer));
+                    if (id == null && numStates == maxStates) {
+                        //Cache voll: leeren, oder bei zu vielen Leerungen mit der NFA-Simulation weitermachen
+                        if (flushes > 0 && charsSinceFlush < (long) MIN_CHARS_PER_STATE * maxStates) {
+                            fallbacks++;
+                            return simulate(w, i + 1);
+                        }
+                        flush();
+                        flushed = true;
+                    }
+                    target = id != null ? id : intern(buffer);
+                }
+                //nach einer Leerung gibt es den Ausgangszustand nicht mehr
+                if (!flushed) next[state * numSymbols + symbol] = target;
+            }
+            charsSinceFlush++;
+            if (target == DEAD) {
+                //die restlichen Zeichen muessen trotzdem erlaubt sein
+                for (int j = i + 1; j < w.length(); j++) sim.symbolIndex(w.charAt(j));
+                return false;
+            }
+            state = target;
+        }
+        return accepting[state];
+    }
+
+    //Rest des Wortes ab from mit der NFA-Simulation, die aktuelle Teilmenge steht in buffer
+    private boolean simulate(CharSequence w, int from) {
+        long[] cur = buffer;
+        long[] nxt = fallback;
+        for (int i = from; i < w.length(); i++) {
+            sim.step(cur, nxt, sim.symbolIndex(w.charAt(i)));
+            long[] tmp = cur;
+            cur = nxt;
+            nxt = tmp;
+        }
+        return sim.isAccepting(cur);
+    }
+
+    private int intern(long[] set) {
+        BitSet key = BitSet.valueOf(set);
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        if (numStates == maxStates) flush();
+        id = numStates++;
+        ids.put(key, id);
+        sets[id] = set.clone();
+        accepting[id] = sim.isAccepting(set);
+        return id;
+    }
+
+    private void flush() {
+        ids.clear();
+        Arrays.fill(sets, null);
+        Arrays.fill(next, UNKNOWN);
+        numStates = 0;
+        charsSinceFlush = 0;
+        flushes++;
+    }
+
+    //Anzahl der aktuell zwischengespeicherten Teilmengen
+    public int getCachedStates() {
+        return numStates;
+    }
+
+    public int getFlushes() {
+        return flushes;
+    }
+
+    //Anzahl der Woerter, die mit der NFA-Simulation zu Ende gelaufen sind
+    public int getFallbacks() {
+        return fallbacks;
+    }
+}
@@ -0,0 +1,107 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.NFA;
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mehrere Automaten (Muster) in einem: wie bei union fuehrt ein gemeinsamer
+ * Startzustand mit Epsilon-Uebergaengen zu den Startzustaenden der Muster, die
+ * Zustaende von Muster i liegen ab offset[i]. Jeder akzeptierende Zustand kennt
+ * sein Muster, ein einziger Durchlauf ueber das Wort liefert daher alle Muster,
+ * die es akzeptieren. Das Alphabet ist die Vereinigung der Alphabete; ein Zeichen,
+ * das nur einem Muster fehlt, laesst dieses Muster einfach nicht akzeptieren.
+ * Nicht thread-safe.
+ */
+public final class MultiPatternMatcher {
+    private final NFAImpl automaton;
+    private final NFASimulation sim;
+    private final int numPatterns;
+    //patternOf[s] = Muster des Zustands s (-1 fuer den gemeinsamen Startzustand)
+    private final int[] patternOf;
+    private final boolean[] accepting;
+
+    private long[] current;
+    private long[] next;
+
+    private MultiPatternMatcher(NFAImpl automaton, int numPatterns, int[] patternOf) {
+        this.automaton = automaton;
+        this.sim = automaton.getSimulation();
+        this.numPatterns = numPatterns;
+        this.patternOf = patternOf;
+        this.accepting = new boolean[automaton.getNumStates()];
+        for (int s : automaton.getAcceptingStates()) {
+            if (automaton.isExistingState(s)) accepting[s] = true;
+        }
+        this.current = sim.newSet();
+        this.next = sim.newSet();
+    }
+
+    //Muster i bekommt die Nummer i
+    public static MultiPatternMatcher compile(List<? extends NFA> patterns) {
+        Set<Character> alphabet = new HashSet<>();
+        Set<Integer> acceptingStates = new HashSet<>();
+        int numStates = 1;
+        for (NFA pattern : patterns) {
+            alphabet = NFAImpl.unionAlphabet(alphabet, pattern.getAlphabet());
+            //akzeptierende Zustaende ausserhalb des Musters wuerden sonst beim naechsten Muster landen
+            for (int s : pattern.getAcceptingStates()) {
+                if (s >= 0 && s < pattern.getNumStates()) acceptingStates.add(s + numStates);
+            }
+            numStates += pattern.getNumStates();
+        }
+
+        int[] patternOf = new int[numStates];
+        patternOf[0] = -1;
+        NFAImpl automaton = new NFAImpl(numStates, alphabet, acceptingStates, 0);
+        int offset = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            NFA pattern = patterns.get(i);
+            automaton.copyTransitions(pattern, offset);
+            automaton.addTransition(0, null, pattern.getInitialState() + offset);
+            Arrays.fill(patternOf, offset, offset + pattern.getNumStates(), i);
+            offset += pattern.getNumStates();
+        }
+        return new MultiPatternMatcher(automaton, patterns.size(), patternOf);
+    }
+
+    public int getNumPatterns() {
+        return numPatterns;
+    }
+
+    //der zusammengesetzte Automat (akzeptiert, wenn mindestens ein Muster akzeptiert)
+    public NFA getAutomaton() {
+        return automaton;
+    }
+
+    //Nummern aller Muster, die w akzeptieren, aufsteigend sortiert
+    public int[] matches(CharSequence w) throws IllegalCharacterException {
+        sim.start(current);
+        for (int i = 0; i < w.length(); i++) {
+            sim.step(current, next, sim.symbolIndex(w.charAt(i)));
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+        }
+
+        int[] result = new int[numPatterns];
+        int count = 0;
+        int last = -1;
+        //die Zustaende eines Musters liegen zusammen, die Muster kommen also schon sortiert
+        for (int s = NFASimulation.nextSetBit(current, 0); s >= 0; s = NFASimulation.nextSetBit(current, s + 1)) {
+            if (accepting[s] && patternOf[s] != last) {
+                last = patternOf[s];
+                result[count++] = last;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public boolean matchesAny(CharSequence w) throws IllegalCharacterException {
+        return sim.accepts(w);
+    }
+}
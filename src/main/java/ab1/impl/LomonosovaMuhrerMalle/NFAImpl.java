@@ -5,26 +5,54 @@ import ab1.NFA;
 import ab1.exceptions.IllegalCharacterException;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 public class NFAImpl implements NFA {
     private int numStates;
+    //eigene, unveraenderliche Kopie: ein DFAImpl legt seine Tabellenspalten beim Erzeugen danach an
     private Set<Character> alphabet;
+    //eigene, unveraenderliche Kopie: Aenderungen an der uebergebenen Menge wuerden sonst an den Caches vorbeigehen
     private Set<Integer> acceptingStates;
     private int initialState;
-    private Set<Character>[][] transitions;
+    //Uebergaenge pro Zustand: Zeichen -> Folgezustaende ("null" entspricht dem leeren Wort).
+    //Die Map eines Zustands wird erst beim ersten Uebergang angelegt.
+    private Map<Character, Set<Integer>>[] successors;
+    //Bereichsuebergaenge pro Zustand: Folgezustand -> Zeichen (siehe CharRanges), null solange es keine gibt
+    private Map<Integer, CharRanges>[] rangeSuccessors;
+    //Die folgenden Caches werden erst bei Bedarf aufgebaut. Sie sind volatile, damit mehrere Threads einen
+    //unveraenderten Automaten gleichzeitig lesen koennen (accepts usw.), ein doppelter Aufbau schadet dabei nicht.
+    //Transitionsmatrix fuer getTransitions()
+    private volatile Set<Character>[][] transitionsView;
+    //Epsilon-Huellen aller Zustaende
+    private volatile EpsilonClosure epsilonClosure;
+    //vorberechnete Simulation fuer accepts/getNextStates
+    private volatile NFASimulation simulation;
+    //erreichbare und nuetzliche Zustaende, wird bei neuen Uebergaengen nachgefuehrt
+    private volatile Reachability reachability;
+    //Ergebnisse von toDFA, complement, intersection und minus minimieren (wird an abgeleitete Automaten weitergegeben)
+    private boolean autoMinimize;
+    //Ergebnisse von union, concat, kleeneStar, complement, intersection, minus und toDFA trimmen (siehe trim)
+    private boolean autoTrim;
 
     //constructor
     public NFAImpl(int numStates, Set<Character> alphabet, Set<Integer> acceptingStates, int initialState) {
         this.numStates = numStates;
-        this.alphabet = alphabet;
-        this.acceptingStates = acceptingStates;
+        //CharRanges ist schon unveraenderlich, andere Alphabete werden kopiert
+        this.alphabet = alphabet instanceof CharRanges ? alphabet : Collections.unmodifiableSet(new HashSet<>(alphabet));
+        this.acceptingStates = Collections.unmodifiableSet(new HashSet<>(acceptingStates));
         this.initialState = initialState;
-        this.transitions = new Set[numStates][numStates];
-        for (int i = 0; i < numStates; i++) {
-            for (int j = 0; j < numStates; j++) {
-                transitions[i][j] = new HashSet<Character>();
-            }
-        }
+        this.successors = typedArray(new Map<?, ?>[numStates]);
+    }
+
+    /*
+    Java kann keine Arrays mit generischem Elementtyp anlegen (new Map<Character, Set<Integer>>[n] geht nicht).
+    Die Arrays werden deshalb mit Wildcard-Typ angelegt und hier umgetypt. Das ist sicher, weil sie frisch und
+    nur mit null gefuellt sind und danach nur Elemente des richtigen Typs hineinkommen.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T typedArray(Object[] array) {
+        return (T) array;
     }
 
     @Override
@@ -58,7 +86,77 @@ public class NFAImpl implements NFA {
         if (!isExistingState(fromState) || !isExistingState(toState)){
             throw new IllegalStateException();
         }
-        transitions[fromState][toState].add(c);
+        addTransition(fromState, c, toState);
+    }
+
+    //Uebergang mit allen Zeichen aus chars auf einmal, ein Bereich wird nicht in einzelne Zeichen zerlegt
+    public void setRangeTransition(int fromState, CharRanges chars, int toState) throws IllegalStateException, IllegalCharacterException {
+        if (!chars.isSubsetOf(getAlphabet())) {
+            throw new IllegalCharacterException();
+        }
+        if (!isExistingState(fromState) || !isExistingState(toState)) {
+            throw new IllegalStateException();
+        }
+        addRangeTransition(fromState, chars, toState);
+    }
+
+    //wird nach jeder Aenderung der Uebergaenge aufgerufen
+    protected void transitionsChanged() {
+        transitionsView = null;
+        epsilonClosure = null;
+        simulation = null;
+        reachability = null;
+    }
+
+    //nur ein Uebergang fromState -> toState ist dazugekommen: die Erreichbarkeit wird nachgefuehrt statt verworfen
+    protected void transitionAdded(int fromState, int toState) {
+        Reachability tracked = reachability;
+        transitionsChanged();
+        if (tracked != null) {
+            tracked.transitionAdded(fromState, toState);
+            reachability = tracked;
+        }
+    }
+
+    EpsilonClosure getEpsilonClosure() {
+        EpsilonClosure closure = epsilonClosure;
+        if (closure == null) {
+            closure = new EpsilonClosure(this);
+            epsilonClosure = closure;
+        }
+        return closure;
+    }
+
+    //Epsilon-Huelle von state (inklusive state)
+    Set<Integer> getEpsilonClosure(int state) {
+        Set<Integer> closure = new HashSet<>();
+        for (int s : getEpsilonClosure().of(state)) {
+            closure.add(s);
+        }
+        return closure;
+    }
+
+    Reachability getReachability() {
+        Reachability r = reachability;
+        if (r == null) {
+            r = new Reachability(this);
+            reachability = r;
+        }
+        return r;
+    }
+
+    NFASimulation getSimulation() {
+        NFASimulation sim = simulation;
+        if (sim == null) {
+            sim = new NFASimulation(this);
+            simulation = sim;
+        }
+        return sim;
+    }
+
+    //Aequivalenzklassen der Zeichen (Minterme aller Uebergaenge), siehe SymbolTable.partition
+    SymbolTable symbolClasses() {
+        return SymbolTable.partition(alphabet, this);
     }
 
     /* Beispiel fuers bessere Verstaendnis :
@@ -66,10 +164,133 @@ public class NFAImpl implements NFA {
         0 a b -
         1 - b a
         2 - - a,b
+
+       Die Matrix wird aus den Uebergaengen erzeugt und bis zur naechsten Aenderung zwischengespeichert.
+       Sie ist nur eine Ansicht: leere Zellen teilen sich eine leere Menge und keine Zelle kann veraendert
+       werden, Aenderungen gehen ueber setTransition/clearTransitions.
+       Bereichsuebergaenge stehen hier Zeichen fuer Zeichen drin (bei grossen Bereichen also entsprechend gross).
     */
     @Override
     public Set<Character>[][] getTransitions() {
-        return transitions;
+        Set<Character>[][] view = transitionsView;
+        if (view == null) {
+            Set<Character>[][] matrix = typedArray(new Set<?>[numStates][numStates]);
+            for (int i = 0; i < numStates; i++) {
+                Arrays.fill(matrix[i], Collections.emptySet());
+                for (Map.Entry<Character, Set<Integer>> entry : getSuccessors(i).entrySet()) {
+                    for (int j : entry.getValue()) {
+                        if (matrix[i][j].isEmpty()) matrix[i][j] = new HashSet<>();
+                        matrix[i][j].add(entry.getKey());
+                    }
+                }
+                for (Map.Entry<Integer, CharRanges> entry : getRangeSuccessors(i).entrySet()) {
+                    if (matrix[i][entry.getKey()].isEmpty()) matrix[i][entry.getKey()] = new HashSet<>();
+                    matrix[i][entry.getKey()].addAll(entry.getValue());
+                }
+                for (int j = 0; j < numStates; j++) {
+                    if (!matrix[i][j].isEmpty()) matrix[i][j] = Collections.unmodifiableSet(matrix[i][j]);
+                }
+            }
+            view = matrix;
+            transitionsView = view;
+        }
+        return view;
+    }
+
+    //Folgezustaende von state mit genau dem Zeichen c (ohne Epsilon-Huelle, mit Bereichsuebergaengen), nicht veraendern!
+    Set<Integer> getSuccessors(int state, Character c) {
+        Set<Integer> targets = successors[state] == null ? Collections.emptySet() : successors[state].getOrDefault(c, Collections.emptySet());
+        if (c == null || rangeSuccessors == null || rangeSuccessors[state] == null) return targets;
+        Set<Integer> all = null;
+        for (Map.Entry<Integer, CharRanges> entry : rangeSuccessors[state].entrySet()) {
+            if (!entry.getValue().contains(c.charValue())) continue;
+            if (all == null) all = new HashSet<>(targets);
+            all.add(entry.getKey());
+        }
+        return all == null ? targets : all;
+    }
+
+    //alle Uebergaenge von state mit einzelnen Zeichen (Zeichen -> Folgezustaende), nicht veraendern!
+    //Zusammen mit getRangeSuccessors(state) sind das alle Uebergaenge.
+    Map<Character, Set<Integer>> getSuccessors(int state) {
+        if (successors[state] == null) return Collections.emptyMap();
+        return successors[state];
+    }
+
+    //alle Bereichsuebergaenge von state (Folgezustand -> Zeichen), nicht veraendern!
+    Map<Integer, CharRanges> getRangeSuccessors(int state) {
+        if (rangeSuccessors == null || rangeSuccessors[state] == null) return Collections.emptyMap();
+        return rangeSuccessors[state];
+    }
+
+    //alle Folgezustaende von state (ueber Zeichen, Bereiche und Epsilon, Duplikate moeglich), ohne etwas anzulegen
+    void forEachSuccessor(int state, IntConsumer action) {
+        for (Set<Integer> targets : getSuccessors(state).values()) {
+            for (int t : targets) action.accept(t);
+        }
+        for (int t : getRangeSuccessors(state).keySet()) action.accept(t);
+    }
+
+    //kopiert alle Uebergaenge von a in diesen Automaten, die Zustaende von a werden um offset verschoben
+    protected void copyTransitions(NFA a, int offset) {
+        if (a instanceof NFAImpl) {
+            NFAImpl nfa = (NFAImpl) a;
+            for (int i = 0; i < nfa.getNumStates(); i++) {
+                for (Map.Entry<Character, Set<Integer>> entry : nfa.getSuccessors(i).entrySet()) {
+                    for (int j : entry.getValue()) {
+                        addTransition(i + offset, entry.getKey(), j + offset);
+                    }
+                }
+                for (Map.Entry<Integer, CharRanges> entry : nfa.getRangeSuccessors(i).entrySet()) {
+                    addRangeTransition(i + offset, entry.getValue(), entry.getKey() + offset);
+                }
+            }
+        } else {
+            Set<Character>[][] matrix = a.getTransitions();
+            for (int i = 0; i < matrix.length; i++) {
+                for (int j = 0; j < matrix.length; j++) {
+                    for (Character c : matrix[i][j]) {
+                        addTransition(i + offset, c, j + offset);
+                    }
+                }
+            }
+        }
+    }
+
+    //setzt einen Uebergang ohne die Pruefungen von setTransition (auch bei DFAs wird nichts ersetzt)
+    protected void addTransition(int fromState, Character c, int toState) {
+        if (successors[fromState] == null) {
+            successors[fromState] = new HashMap<>();
+        }
+        //einen schon vorhandenen Uebergang nicht noch einmal an Reachability melden
+        if (successors[fromState].computeIfAbsent(c, k -> new HashSet<>()).add(toState)) {
+            transitionAdded(fromState, toState);
+        }
+    }
+
+    //wie addTransition fuer alle Zeichen aus chars, Bereiche zum selben Folgezustand werden vereinigt
+    protected void addRangeTransition(int fromState, CharRanges chars, int toState) {
+        if (chars.isEmpty()) return;
+        if (rangeSuccessors == null) {
+            rangeSuccessors = typedArray(new Map<?, ?>[successors.length]);
+        }
+        if (rangeSuccessors[fromState] == null) {
+            rangeSuccessors[fromState] = new HashMap<>();
+        }
+        CharRanges old = rangeSuccessors[fromState].get(toState);
+        CharRanges merged = old == null ? chars : old.union(chars);
+        if (merged.equals(old)) return;
+        rangeSuccessors[fromState].put(toState, merged);
+        transitionAdded(fromState, toState);
+    }
+
+    //Uebergang mit allen Zeichen der Spalte column von symbols (fuer Konstruktionen, die pro Zeichenklasse arbeiten)
+    void addColumnTransition(int fromState, SymbolTable symbols, int column, int toState) {
+        if (symbols.classSize(column) == 1) {
+            addTransition(fromState, symbols.symbolAt(column), toState);
+        } else {
+            addRangeTransition(fromState, symbols.columnRanges(column), toState);
+        }
     }
 
     @Override
@@ -77,6 +298,99 @@ public class NFAImpl implements NFA {
         return numStates;
     }
 
+    public boolean isAutoMinimize() {
+        return autoMinimize;
+    }
+
+    public void setAutoMinimize(boolean autoMinimize) {
+        this.autoMinimize = autoMinimize;
+    }
+
+    //uebernimmt die Einstellungen dieses Automaten fuer einen daraus abgeleiteten Automaten
+    protected <T extends NFAImpl> T inheritOptions(T derived) {
+        derived.setAutoMinimize(autoMinimize);
+        derived.setAutoTrim(autoTrim);
+        return derived;
+    }
+
+    //minimiert das Ergebnis einer Operation, wenn autoMinimize gesetzt ist (nur deterministische Ergebnisse)
+    protected NFA minimizeIfEnabled(NFA result) {
+        if (autoMinimize && result instanceof DFA) return ((DFA) result).minimize();
+        return result;
+    }
+
+    public boolean isAutoTrim() {
+        return autoTrim;
+    }
+
+    public void setAutoTrim(boolean autoTrim) {
+        this.autoTrim = autoTrim;
+    }
+
+    //trimmt das Ergebnis einer Operation, wenn autoTrim gesetzt ist und es ueberhaupt etwas zu entfernen gibt
+    protected NFAImpl trimIfEnabled(NFAImpl result) {
+        if (!autoTrim) return result;
+        int[] newId = result.trimmedNumbers();
+        //die Nummern steigen lueckenlos auf, hat der letzte Zustand seine alte Nummer, bleiben alle
+        if (newId.length == 0 || newId[newId.length - 1] == newId.length - 1) return result;
+        return result.trim();
+    }
+
+    /*
+    Entfernt alle Zustaende, die nicht vom Startzustand aus erreichbar sind oder von denen aus kein
+    akzeptierender Zustand mehr erreichbar ist (beides aus Reachability), samt ihren Uebergaengen.
+    Die uebrigen Zustaende behalten ihre Reihenfolge und werden luecklos neu nummeriert. Der Startzustand
+    bleibt immer erhalten, bei leerer Sprache ist er der einzige Zustand. Die Sprache aendert sich nicht.
+     */
+    public NFAImpl trim() {
+        int[] newId = trimmedNumbers();
+        NFAImpl trimmed = inheritOptions(new NFAImpl(numKept(newId), alphabet, trimmedAcceptingStates(newId), trimmedInitialState(newId)));
+        for (int s = 0; s < numStates; s++) {
+            if (newId[s] < 0) continue;
+            for (Map.Entry<Character, Set<Integer>> entry : getSuccessors(s).entrySet()) {
+                for (int t : entry.getValue()) {
+                    if (newId[t] >= 0) trimmed.addTransition(newId[s], entry.getKey(), newId[t]);
+                }
+            }
+            for (Map.Entry<Integer, CharRanges> entry : getRangeSuccessors(s).entrySet()) {
+                if (newId[entry.getKey()] >= 0) trimmed.addRangeTransition(newId[s], entry.getValue(), newId[entry.getKey()]);
+            }
+        }
+        return trimmed;
+    }
+
+    //neue Nummer jedes Zustands nach trim, -1 = Zustand faellt weg
+    int[] trimmedNumbers() {
+        Reachability reach = getReachability();
+        int[] newId = new int[numStates];
+        int n = 0;
+        for (int s = 0; s < numStates; s++) {
+            boolean keep = s == initialState || reach.isReachable(s) && reach.isUseful(s);
+            newId[s] = keep ? n++ : -1;
+        }
+        return newId;
+    }
+
+    static int numKept(int[] newId) {
+        int n = 0;
+        for (int id : newId) {
+            if (id >= 0) n++;
+        }
+        return n;
+    }
+
+    Set<Integer> trimmedAcceptingStates(int[] newId) {
+        Set<Integer> accepting = new HashSet<>();
+        for (int s : acceptingStates) {
+            if (isExistingState(s) && newId[s] >= 0) accepting.add(newId[s]);
+        }
+        return accepting;
+    }
+
+    int trimmedInitialState(int[] newId) {
+        return isExistingState(initialState) ? newId[initialState] : initialState;
+    }
+
     //ueberpruefen, ob der Zustand existiert
     public boolean isExistingState(int s) {
         if (s < 0 || s > getNumStates() - 1) return false;
@@ -94,40 +408,45 @@ public class NFAImpl implements NFA {
     @Override
     public void clearTransitions(int fromState, Character c) throws IllegalStateException {
         if (!isExistingState(fromState)) throw new IllegalStateException();
-        for (int i = 0; i < transitions.length; i++) {
-            transitions[fromState][i].remove(c);
+        if (successors[fromState] != null && successors[fromState].remove(c) != null) {
+            transitionsChanged();
+        }
+        //c aus allen Bereichen entfernen, die es enthalten
+        if (c == null || rangeSuccessors == null || rangeSuccessors[fromState] == null) return;
+        Iterator<Map.Entry<Integer, CharRanges>> it = rangeSuccessors[fromState].entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, CharRanges> entry = it.next();
+            if (!entry.getValue().contains(c.charValue())) continue;
+            CharRanges rest = entry.getValue().minus(CharRanges.of(c));
+            if (rest.isEmpty()) {
+                it.remove();
+            } else {
+                entry.setValue(rest);
+            }
+            transitionsChanged();
         }
     }
 
     @Override
     public Set<Integer> getNextStates(int state, Character c) throws IllegalCharacterException, IllegalStateException {
-        Set<Integer> epsStates = getEpsilonStates(state);
-        Set<Integer> nextStates = getNextDeterministicStates(state, c);
-
-        boolean changed = false;
-
-        do {
-            int nextStatesSizeBefore = nextStates.size();
-            int epsStatesSizeBefore = epsStates.size();
-
-            Set<Integer> epsStatesNew = new HashSet<Integer>();
+        if (!isExistingChar(c) && c != null) {
+            throw new IllegalCharacterException();
+        }
+        if (!isExistingState(state)) throw new IllegalStateException();
 
-            for (Integer s : epsStates) {
-                nextStates.addAll(getNextDeterministicStates(s, c));
-                epsStatesNew.addAll(getEpsilonStates(s));
+        NFASimulation sim = getSimulation();
+        long[] nextStates = sim.newSet();
+        if (c == null) {
+            //alle Zustaende, die mit mindestens einem Epsilon-Uebergang erreichbar sind
+            for (int s : getSuccessors(state, null)) {
+                sim.addClosure(nextStates, s);
             }
-            epsStates.addAll(epsStatesNew);
-
-            changed = nextStatesSizeBefore != nextStates.size() || epsStatesSizeBefore != epsStates.size();
-        } while (changed);
-
-        Set<Integer> epsAfter = new HashSet<>();
-        for (int s : nextStates) {
-            epsAfter.addAll(getEpsilonStates(s));
+        } else {
+            long[] epsStates = sim.newSet();
+            sim.closureOf(state, epsStates);
+            sim.step(epsStates, nextStates, sim.symbolIndex(c));
         }
-        nextStates.addAll(epsAfter);
-
-        return nextStates;
+        return NFASimulation.toSet(nextStates);
     }
 
     public Set<Integer> getNextDeterministicStates(int state, Character c) throws IllegalCharacterException, IllegalStateException {
@@ -136,24 +455,12 @@ public class NFAImpl implements NFA {
         }
         if (!isExistingState(state)) throw new IllegalStateException();
 
-        Set<Integer> nextStates = new HashSet<>();
-        for (int i = 0; i < transitions[state].length; i++) {
-            if (transitions[state][i].contains(c)) {
-                nextStates.add(i);
-            }
-        }
-        return nextStates;
+        return new HashSet<>(getSuccessors(state, c));
     }
 
     public Set<Integer> getEpsilonStates(int state) throws IllegalStateException {
         if (!isExistingState(state)) throw new IllegalStateException();
-        Set<Integer> nextEpsStates = new HashSet<>();
-        for (int i = 0; i < transitions[state].length; i++) {
-            if (transitions[state][i].contains(null)) {
-                nextEpsStates.add(i);
-            }
-        }
-        return nextEpsStates;
+        return new HashSet<>(getSuccessors(state, null));
     }
 
     /*
@@ -163,9 +470,7 @@ public class NFAImpl implements NFA {
     @Override
     public NFA union(NFA a) {
         //neues Alphabet
-        Set<Character> unionAlphabet = new HashSet<>();
-        unionAlphabet.addAll(a.getAlphabet());
-        unionAlphabet.addAll(this.getAlphabet());
+        Set<Character> unionAlphabet = unionAlphabet(a.getAlphabet(), this.getAlphabet());
 
         //akzeptierende Endzustaende
         Set<Integer> unionAccStates = new HashSet<>();
@@ -178,74 +483,128 @@ public class NFAImpl implements NFA {
         }
 
         //create new NFA
-        NFA unionFA = new NFAImpl(this.numStates + a.getNumStates() + 1, unionAlphabet, unionAccStates, 0);
+        NFAImpl unionFA = inheritOptions(new NFAImpl(this.numStates + a.getNumStates() + 1, unionAlphabet, unionAccStates, 0));
 
-        //set transition matrix (the matrix was already created in the constructor)
         //1) set 2 new Epsilon-transitions
         unionFA.setTransition(0, null, 1);
         unionFA.setTransition(0, null, this.numStates + 1);
 
-        //2) copy first transition matrix
-        Set<Character>[][] unionMatrix = unionFA.getTransitions();
-        Set<Character>[][] matrix1 = this.getTransitions();
-        for (int i = 0; i < this.numStates; i++) {
-            for (int j = 0; j < this.numStates; j++) {
-                if (!matrix1[i][j].isEmpty()) {
-                    unionMatrix[i + 1][j + 1].addAll(matrix1[i][j]);
-                }
-            }
-        }
+        //2) copy transitions of the first automaton
+        unionFA.copyTransitions(this, 1);
 
-        //3) copy second matrix
-        Set<Character>[][] matrix2 = a.getTransitions();
-        for (int i = 0; i < matrix2.length; i++) {
-            for (int j = 0; j < matrix2.length; j++) {
-                if (!matrix2[i][j].isEmpty()) {
-                    unionMatrix[i + 1 + matrix1.length][j + 1 + matrix1[0].length].addAll(matrix2[i][j]);
-                }
-            }
-        }
+        //3) copy transitions of the second automaton
+        unionFA.copyTransitions(a, this.numStates + 1);
 
-        return unionFA;
+        return trimIfEnabled(unionFA);
     }
 
-    //L1 complement in Vereinigung mit L2 complement
+    /*
+    Produktkonstruktion: die Zustaende sind die vom Startpaar aus erreichbaren Paare (p, q),
+    ein Paar akzeptiert, wenn beide Automaten akzeptieren.
+    Sind beide Automaten DFAs, ist das Produkt wieder ein DFA. Sonst entsteht ein NFA, in dem jeder
+    Epsilon-Uebergang nur einen der beiden Automaten weiterschaltet - determinisiert wird nichts.
+    Die Zeichen werden pro Minterm beider Automaten betrachtet (SymbolTable.product), ein Bereich wie
+    "alle Buchstaben" ist also ein einziger Uebergang und nicht einer pro Zeichen.
+     */
     @Override
     public NFA intersection(NFA a) {
-        if (!this.getAcceptingStates().isEmpty()) {
-            //1) Komplement von L1
-            NFA complement1 = this.complement();
+        NFAImpl other = of(a);
+        boolean deterministic = this instanceof DFA && other instanceof DFA;
+
+        //neues Alphabet ist die Vereinigung von zwei Automaten
+        Set<Character> productAlphabet = unionAlphabet(this.getAlphabet(), other.getAlphabet());
+        SymbolTable symbols = SymbolTable.product(productAlphabet, symbolClasses(), other.symbolClasses());
+
+        NFAImpl product = inheritOptions(deterministic
+                ? new DFAImpl(1, productAlphabet, new HashSet<>(), 0, symbols)
+                : new NFAImpl(1, productAlphabet, new HashSet<>(), 0));
+
+        //Paar (p, q) -> Zustand im Produkt, Schluessel p * other.numStates + q
+        Map<Long, Integer> ids = new HashMap<>();
+        List<int[]> pairs = new ArrayList<>();
+        long start = (long) initialState * other.numStates + other.initialState;
+        ids.put(start, 0);
+        pairs.add(new int[]{initialState, other.initialState});
+        Set<Integer> productAccepting = new HashSet<>();
+
+        for (int i = 0; i < pairs.size(); i++) {
+            int p = pairs.get(i)[0];
+            int q = pairs.get(i)[1];
+            if (isAcceptingState(p) && other.isAcceptingState(q)) productAccepting.add(i);
+
+            for (int j = 0; j < symbols.size(); j++) {
+                char c = symbols.symbolAt(j);
+                Set<Integer> pTargets = getSuccessors(p, c);
+                if (pTargets.isEmpty()) continue;
+                for (int q2 : other.getSuccessors(q, c)) {
+                    for (int p2 : pTargets) {
+                        product.addColumnTransition(i, symbols, j, productState(product, ids, pairs, p2, q2, other.numStates));
+                    }
+                }
+            }
+            //nur dieser Automat macht einen Epsilon-Schritt
+            for (int p2 : getSuccessors(p, null)) {
+                product.addTransition(i, null, productState(product, ids, pairs, p2, q, other.numStates));
+            }
+            //nur der andere Automat macht einen Epsilon-Schritt
+            for (int q2 : other.getSuccessors(q, null)) {
+                product.addTransition(i, null, productState(product, ids, pairs, p, q2, other.numStates));
+            }
+        }
+        product.setNumStates(pairs.size());
+        product.setAcceptingStates(productAccepting);
 
-            //2) Komplement von L2
-            NFA complement2 = a.complement();
+        return minimizeIfEnabled(trimIfEnabled(product));
+    }
 
-            //3) Vereinigung von Komplement L1 und Komplement L2
-            NFA union = complement1.union(complement2);
+    //Zustand des Paares (p, q) im Produkt, wird beim ersten Auftreten angelegt
+    private static int productState(NFAImpl product, Map<Long, Integer> ids, List<int[]> pairs, int p, int q, int otherNumStates) {
+        Integer id = ids.get((long) p * otherNumStates + q);
+        if (id == null) {
+            id = pairs.size();
+            ids.put((long) p * otherNumStates + q, id);
+            pairs.add(new int[]{p, q});
+            if (id >= product.getNumStates()) product.setNumStates(id + 1);
+        }
+        return id;
+    }
 
-            NFA complement = union.complement();
+    //Vereinigung zweier Alphabete, als CharRanges, sobald eins davon eine ist (sonst wie bisher ein HashSet)
+    static Set<Character> unionAlphabet(Set<Character> a, Set<Character> b) {
+        if (a instanceof CharRanges || b instanceof CharRanges) {
+            return CharRanges.copyOf(a).union(CharRanges.copyOf(b));
+        }
+        Set<Character> union = new HashSet<>();
+        union.addAll(a);
+        union.addAll(b);
+        return union;
+    }
 
-            //4) Komplement von dieser Vereinigung
-            return complement;
-        }else return this;
+    //liefert a als NFAImpl (kopiert nur, wenn a eine andere Implementierung ist)
+    static NFAImpl of(NFA a) {
+        if (a instanceof NFAImpl) return (NFAImpl) a;
+        NFAImpl nfa = a instanceof DFA
+                ? new DFAImpl(a.getNumStates(), a.getAlphabet(), a.getAcceptingStates(), a.getInitialState())
+                : new NFAImpl(a.getNumStates(), a.getAlphabet(), a.getAcceptingStates(), a.getInitialState());
+        nfa.copyTransitions(a, 0);
+        return nfa;
     }
 
-    //complement(complement L1 vereinigt mit L2)
+    //Produkt von diesem Automaten mit dem (nur soweit noetig) determinisierten a, akzeptiert L1 \ L2
     @Override
     public NFA minus(NFA a) {
-        if (this.acceptsNothing()) {return this;}
-        NFA l1 = this.complement();
-        NFA l1vl2 = l1.union(a);
+        //neues Alphabet ist die Vereinigung von zwei Automaten
+        Set<Character> minusAlphabet = unionAlphabet(this.getAlphabet(), a.getAlphabet());
 
-        return l1vl2.complement();
+        NFAImpl difference = new DifferenceProduct(this, of(a)).build(minusAlphabet, this instanceof DFA);
+        return minimizeIfEnabled(trimIfEnabled(inheritOptions(difference)));
     }
 
     //von jedem Endzustand mach einen Epsilon Uebergang zu dem Startzustand des zweiten Ausomates
     @Override
     public NFA concat(NFA a) {
         //neues Alphabet ist die Vereinigung von zwei Automaten
-        Set<Character> concatAlphabet = new HashSet<>();
-        concatAlphabet.addAll(a.getAlphabet());
-        concatAlphabet.addAll(this.getAlphabet());
+        Set<Character> concatAlphabet = unionAlphabet(a.getAlphabet(), this.getAlphabet());
 
         //ausrechne akzeptierende Zustaende
         Set<Integer> concatAccStates = new HashSet<>();
@@ -254,90 +613,64 @@ public class NFAImpl implements NFA {
         }
 
         //erstell einen neuen NFA
-        NFA concatFA = new NFAImpl(this.numStates + a.getNumStates(), concatAlphabet, concatAccStates, 0);
-
-        //fuell die Transitionsmatrix aus
-        //1) kopiere die Transitionsmatrix von dem ersten Automaten
-        Set<Character>[][] concatMatrix = concatFA.getTransitions();
-        Set<Character>[][] matrix1 = this.getTransitions();
-        for (int i = 0; i < matrix1.length; i++) {
-            for (int j = 0; j < matrix1.length; j++) {
-                concatMatrix[i][j].addAll(matrix1[i][j]);
-            }
-        }
+        NFAImpl concatFA = inheritOptions(new NFAImpl(this.numStates + a.getNumStates(), concatAlphabet, concatAccStates, 0));
 
-        //2) kopiere die Transitionsmatrix von dem zweiten Automaten
-        Set<Character>[][] matrix2 = a.getTransitions();
-        for (int i = 0; i < matrix2.length; i++) {
-            for (int j = 0; j < matrix2.length; j++) {
-                concatMatrix[i + numStates][j + numStates].addAll(matrix2[i][j]);
-            }
-        }
+        //fuell die Uebergaenge aus
+        //1) kopiere die Uebergaenge von dem ersten Automaten
+        concatFA.copyTransitions(this, 0);
+
+        //2) kopiere die Uebergaenge von dem zweiten Automaten
+        concatFA.copyTransitions(a, numStates);
 
         //3) erstelle Epsilon - Uebergaenge
         for (int accState : acceptingStates) {
             concatFA.setTransition(accState, null, numStates);
         }
 
-        return concatFA;
+        return trimIfEnabled(concatFA);
     }
 
+    //ersetzt alle Uebergaenge durch die der Matrix (die Anzahl der Zustaende bleibt gleich)
     public void setTransitions(Set<Character>[][] transitions){
-        this.transitions = transitions;
+        this.successors = typedArray(new Map<?, ?>[numStates]);
+        this.rangeSuccessors = null;
+        for (int i = 0; i < transitions.length; i++) {
+            for (int j = 0; j < transitions[i].length; j++) {
+                for (Character c : transitions[i][j]) {
+                    addTransition(i, c, j);
+                }
+            }
+        }
+        transitionsChanged();
     }
 
     @Override
     public NFA complement() {
-        DFA dfa = this.toDFA();
-        //Schon jetzt in eine NFA umwandeln, damit die setTransition Funktion von DFA nicht die vorhandenen Verbindungen umschreibt
-        //numStates + 1, weil man sonst nicht richtig die Falle einbauen kann
-        NFAImpl nfa = new NFAImpl(dfa.getNumStates()+1, dfa.getAlphabet(), dfa.getAcceptingStates(), dfa.getInitialState());
-
-        Set<Character> [][] transDfa = dfa.getTransitions();
-        //Befüllt nfa mit den Transitions von dfa
-        for (int i = 0; i < dfa.getNumStates(); i++) {
-            for (int j = 0; j < dfa.getNumStates(); j++) {
-                nfa.transitions[i][j] = transDfa[i][j];
-            }
-        }
+        //toDFA liefert einen DFAImpl, dessen Tabelle (pro Zeichenklasse) direkt weiterverwendet wird
+        DFAImpl dfa = (DFAImpl) this.toDFA();
+        SymbolTable symbols = dfa.getSymbolTable();
+        int k = symbols.size();
+        int n = dfa.getNumStates();
 
-        //1) Falle
-        int trapstate = nfa.getNumStates() - 1;
+        //1) Falle: numStates + 1, alle fehlenden Uebergaenge fuehren in den Fallenzustand
+        int trapstate = n;
 
-        //Dann alle Zustände mit dem Fallenzustand verbinden
-        //und es dürfen nur die Buchstaben eingelesen werden, die nicht zu einem gültigen Pfad führen
-        for (int i = 0; i < nfa.getNumStates(); i++) {
-            //verwendete Buchstaben sammeln
-            List<Character> used = new ArrayList<>();
-            for (char c: nfa.getAlphabet()) {
-                for (int j = 0; j < nfa.getNumStates(); j++) {
-                    if(nfa.transitions[i][j].contains(c)) used.add(c);
-                }
-            }
-            for (char c: nfa.getAlphabet()) {
-                if(!used.contains(c)) nfa.setTransition(i, c, trapstate);
-            }
+        //2) Umwandlung akzeptierende Zustände in nicht akzeptierende Zustände (die Falle akzeptiert)
+        Set<Integer> notAcceptingStates = new HashSet<>();
+        for (int i = 0; i <= n; i++) {
+            if (!dfa.getAcceptingStates().contains(i)) notAcceptingStates.add(i);
         }
 
-        for (char c: dfa.getAlphabet()) {
-            nfa.setTransition(trapstate, c, trapstate);
+        //das Ergebnis ist vollstaendig deterministisch
+        int[] from = dfa.getTransitionTable();
+        int[] to = new int[(n + 1) * k];
+        for (int i = 0; i < n * k; i++) {
+            to[i] = from[i] < 0 ? trapstate : from[i];
         }
+        Arrays.fill(to, n * k, (n + 1) * k, trapstate);
+        DFAImpl complement_DFA = inheritOptions(new DFAImpl(n + 1, dfa.getAlphabet(), notAcceptingStates, dfa.getInitialState(), symbols, to));
 
-        //2) Umwandlung akzeptierende Zustände in nicht akzeptierende Zustände
-        //Sammeln von nicht akzeptierbare Zustände
-        Set <Integer> notAcceptingStates = new HashSet<>();
-        for (int i = 0; i < nfa.getNumStates(); i++) {
-            if(!nfa.getAcceptingStates().contains(i)) notAcceptingStates.add(i);
-        }
-
-        if(!notAcceptingStates.contains(trapstate)) notAcceptingStates.add(trapstate);
-
-        NFAImpl complement_NFA = new NFAImpl(nfa.getNumStates(), nfa.getAlphabet(), notAcceptingStates, 0);
-
-        complement_NFA.setTransitions(nfa.getTransitions());
-
-        return complement_NFA;
-
+        return minimizeIfEnabled(trimIfEnabled(complement_DFA));
     }
 
     @Override
@@ -350,16 +683,11 @@ public class NFAImpl implements NFA {
         }
 
         //erstelle NFA
-        NFA nfaStar = new NFAImpl(numStates + 1, alphabet, acceptingStatesNew, 0);
+        NFAImpl nfaStar = inheritOptions(new NFAImpl(numStates + 1, alphabet, acceptingStatesNew, 0));
 
-        //befuelle Transitionsmatrix
-        //1) kopiere die urspruengliche Matrix
-        Set<Character>[][] starMatrix = nfaStar.getTransitions();
-        for (int i = 0; i < transitions.length; i++) {
-            for (int j = 0; j < transitions.length; j++) {
-                starMatrix[i + 1][j + 1].addAll(transitions[i][j]);
-            }
-        }
+        //befuelle Uebergaenge
+        //1) kopiere die urspruenglichen Uebergaenge
+        nfaStar.copyTransitions(this, 1);
 
         //2) erstelle Epsilon - Uebergaenge
         nfaStar.setTransition(0, null, 1);
@@ -367,7 +695,7 @@ public class NFAImpl implements NFA {
             nfaStar.setTransition(state, null, 0);
         }
 
-        return nfaStar;
+        return trimIfEnabled(nfaStar);
     }
 
     //L+ = L konkateniert mit L *
@@ -377,170 +705,172 @@ public class NFAImpl implements NFA {
         return concat(lStar);
     }
 
-    public DFA toDFA() {
-
-        //for each char in alphabet: generate a new Set<states> (state node) with all the states that are reached from the state
-        // (if null, go one step further), repeat this step till not null (for each state inside the state node)
-        //repeat for each state-node
-
-        DFAImpl dfa = new DFAImpl(this.numStates, alphabet,null,0); //NUMSTATES HAS TO BE CHANGED LATER
-
-        //Repeat until everything is finished
-
-        ArrayList<Set<Integer>> list = new ArrayList<>();
+    /*
+    Gleichwertiger NFA ohne Epsilon-Uebergaenge mit denselben Zustaenden (E(p) = Epsilon-Huelle von p):
+    1) p hat mit c alle Folgezustaende, die irgendein q aus E(p) mit c hat (Bereiche werden genauso uebernommen)
+    2) p akzeptiert, wenn E(p) einen akzeptierenden Zustand enthaelt
+    Zustaende, die nur ueber Epsilon erreicht wurden, sind danach unerreichbar, autoTrim entfernt sie.
+     */
+    public NFAImpl removeEpsilons() {
+        EpsilonClosure closure = getEpsilonClosure();
+        Set<Integer> accepting = new HashSet<>();
+        for (int p = 0; p < numStates; p++) {
+            for (int q : closure.of(p)) {
+                if (acceptingStates.contains(q)) {
+                    accepting.add(p);
+                    break;
+                }
+            }
+        }
 
-        //add start state
-        Set<Integer> startSet = new HashSet<>();
+        NFAImpl epsilonFree = inheritOptions(new NFAImpl(numStates, alphabet, accepting, initialState));
+        for (int p = 0; p < numStates; p++) {
+            for (int q : closure.of(p)) {
+                for (Map.Entry<Character, Set<Integer>> entry : getSuccessors(q).entrySet()) {
+                    if (entry.getKey() == null) continue;
+                    for (int t : entry.getValue()) {
+                        epsilonFree.addTransition(p, entry.getKey(), t);
+                    }
+                }
+                for (Map.Entry<Integer, CharRanges> entry : getRangeSuccessors(q).entrySet()) {
+                    epsilonFree.addRangeTransition(p, entry.getValue(), entry.getKey());
+                }
+            }
+        }
+        return trimIfEnabled(epsilonFree);
+    }
 
-        startSet.add(initialState);
-        startSet.addAll(getEpsilonStates(initialState));
-        list.add(startSet);
+    public DFA toDFA() {
 
-        Set<Integer> fromStateNode = new HashSet<>();
+        //Potenzmengenkonstruktion: jede Teilmenge (epsilon-abgeschlossen, als Bitvektor) bekommt beim ersten
+        //Auftreten eine Nummer, die Zuordnung Teilmenge -> Nummer laeuft ueber eine HashMap.
+        //Die leere Menge wird nicht als Zustand angelegt (kein Folgezustand).
 
-        int l = list.size();
-        for(int i = 0; i < l; i++) {
+        NFASimulation sim = getSimulation();
+        int numSymbols = sim.numSymbols();
 
-            //load in startNode
-            fromStateNode = list.get(i);
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<long[]> subsets = new ArrayList<>();
+        //DFA-Uebergaenge: next[i * numSymbols + j] = Folgezustand von Teilmenge i mit dem j-ten Zeichen, -1 = keiner
+        int[] next = new int[16 * Math.max(1, numSymbols)];
 
-            for (char c : alphabet) {
-                Set<Integer> toStateNode = new HashSet<>();
+        //add start state
+        long[] startSet = sim.newSet();
+        sim.start(startSet);
+        ids.put(BitSet.valueOf(startSet), 0);
+        subsets.add(startSet);
+
+        long[] toStateNode = sim.newSet();
+        for (int i = 0; i < subsets.size(); i++) {
+            long[] fromStateNode = subsets.get(i);
+            if ((i + 1) * numSymbols > next.length) {
+                next = Arrays.copyOf(next, 2 * next.length);
+            }
 
-                for (int y : fromStateNode) {
-                    toStateNode.addAll(getNextStates(y, c));
+            for (int j = 0; j < numSymbols; j++) {
+                sim.step(fromStateNode, toStateNode, j);
+                if (NFASimulation.isEmpty(toStateNode)) {
+                    next[i * numSymbols + j] = -1;
+                    continue;
                 }
 
-                if(!toStateNode.isEmpty()) {
-                    if(!list.contains(toStateNode)){
-                        l++;
-                        list.add(toStateNode);
-                    }
-
-                    //Vermeidet bei n7 eine IllegalStateException
-                    if (list.size() <= dfa.getNumStates())
-                        dfa.setTransition(list.indexOf(fromStateNode), c, list.indexOf(toStateNode));
-                    else {
-                        Set<Character>[][] dfaTrans = dfa.getTransitions();
-                        int newNumStates = list.size();
-                        Set<Character>[][] newTrans = new HashSet[newNumStates][newNumStates];
-
-                        for (int ii = 0; ii < newNumStates; ii++) {
-                            for (int j = 0; j < newNumStates; j++) {
-                                newTrans[ii][j] = new HashSet<Character>();
-                            }
-                        }
-
-                        for (int k = 0; k < dfa.getNumStates(); k++) {
-                            for (int p = 0; p < dfa.getNumStates(); p++) {
-                                newTrans[k][p].addAll(dfaTrans[k][p]);
-                            }
-                        }
-
-                        dfa.setTransitions(newTrans);
-                        dfa.setNumStates(newNumStates);
-                        dfa.setTransition(list.indexOf(fromStateNode), c, list.indexOf(toStateNode));
-                    }
-
+                BitSet key = BitSet.valueOf(toStateNode);
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = subsets.size();
+                    ids.put(key, id);
+                    subsets.add(toStateNode.clone());
                 }
+                next[i * numSymbols + j] = id;
             }
-
         }
 
+        return subsetDFA(sim, subsets, next);
+    }
+
+    //Potenzmengenkonstruktion wie toDFA, die Teilmengen einer Ebene der Breitensuche werden parallel bearbeitet
+    public DFA toDFA(ForkJoinPool pool) {
+        NFASimulation sim = getSimulation();
+        ParallelSubsetConstruction construction = new ParallelSubsetConstruction(sim);
+        construction.run(pool);
+        return subsetDFA(sim, construction.getSubsets(), construction.getTransitions());
+    }
+
+    public DFA toDFAParallel() {
+        return toDFA(ForkJoinPool.commonPool());
+    }
+
+    //baut aus den Teilmengen und der Uebergangstabelle der Potenzmengenkonstruktion den DFA
+    private DFA subsetDFA(NFASimulation sim, List<long[]> subsets, int[] next) {
+        int numSymbols = sim.numSymbols();
 
         //searching for accepting states
         Set<Integer> newAcceptingStates = new HashSet<Integer>();
-        int idx = 0;
-        for(Set<Integer> set : list){
-            for(int i : set){
-                if(this.acceptingStates.contains(i)){
-                    newAcceptingStates.add(idx);
-                }
-
-            }
-            idx++;
+        for (int i = 0; i < subsets.size(); i++) {
+            if (sim.isAccepting(subsets.get(i))) newAcceptingStates.add(i);
         }
 
-        dfa.setAcceptingStates(newAcceptingStates);
+        //der DFA uebernimmt die Zeichenklassen der Simulation, next hat schon das Format seiner Tabelle
+        int[] table = Arrays.copyOf(next, subsets.size() * numSymbols);
+        DFAImpl dfa = inheritOptions(new DFAImpl(subsets.size(), alphabet, newAcceptingStates, 0, sim.symbols(), table));
 
-        dfa.setNumStates(list.size());
+        return (DFA) minimizeIfEnabled(trimIfEnabled(dfa));
+    }
 
-        return dfa;
+
+    //unveraenderliche, thread-sichere Kopie des (determinisierten) Automaten, siehe FrozenDFA
+    public FrozenDFA freeze() {
+        return ((DFAImpl) toDFA()).freeze();
+    }
+
+    //Matcher fuer viele Woerter, siehe NFAMatcher
+    public NFAMatcher matcher() {
+        return new NFAMatcher(this);
     }
 
+    //fuehrt den Automaten als DFA aus, ohne die ganze Potenzmenge zu konstruieren (siehe LazyDFA)
+    //Spaetere Aenderungen an diesem Automaten sieht der LazyDFA nicht mehr.
+    public LazyDFA toLazyDFA() {
+        return toLazyDFA(LazyDFA.DEFAULT_MAX_STATES);
+    }
 
+    public LazyDFA toLazyDFA(int maxStates) {
+        return new LazyDFA(this, maxStates);
+    }
+
+    //bei Vergroesserung haben die neuen Zustaende noch keine Uebergaenge
     public void setNumStates(int numStates) {
+        if (numStates > successors.length) {
+            successors = Arrays.copyOf(successors, Math.max(numStates, 2 * successors.length));
+            if (rangeSuccessors != null) rangeSuccessors = Arrays.copyOf(rangeSuccessors, successors.length);
+        }
         this.numStates = numStates;
+        transitionsChanged();
     }
 
     public void setAcceptingStates(Set<Integer> newAccStates) {
-        this.acceptingStates = newAccStates;
+        this.acceptingStates = Collections.unmodifiableSet(new HashSet<>(newAccStates));
+        simulation = null;
+        Reachability tracked = reachability;
+        if (tracked != null) tracked.acceptingChanged();
     }
 
 
     @Override
     public Boolean accepts(String w) throws IllegalCharacterException {
-        if (acceptsNothing()) return false;  //es wird nichts akzeptiert
-        if (w.length() == 0) {
-            return acceptsEpsilon();
-        }
-
-        Set<Integer> currentStates = new HashSet<>();
-        Set<Integer> newStates = new HashSet<>();
-        currentStates.add(0);   //wir starten mit dem Zustand 0
-
-        for (int i = 0; i < w.length(); i++) {
-            char c = w.charAt(i);
-            if (!isExistingChar(c)) throw new IllegalCharacterException();
-
-            for (Integer state : currentStates) {
-                newStates.addAll(getNextStates(state, c));
-            }
-
-            currentStates.clear();
-            currentStates.addAll(newStates);
-            newStates.clear();
-        }
-
-        for (Integer state : currentStates) {
-            if (acceptingStates.contains(state)) return true;
-        }
-        return false;
+        return getSimulation().accepts(w);
     }
 
+    //O(1), sobald die Erreichbarkeit aufgebaut ist (siehe Reachability)
     @Override
     public Boolean acceptsNothing() {
-        //wenn wir keine akzeptierende Zustaende haben, dann akzeptiert Automat nichts
-        if (acceptingStates.isEmpty()) return true;
-        Set<Integer> unreachable = getUnreachableStatesNew();
-
-        //wenn wir keine unerreichbare Zustaende haben und die Menge der akzeptiernde Zustaende ist nicht leer, dann return false
-        if (unreachable.isEmpty()) return false;
-        //manchmal kann das sein, dass die akzeptierende Zustaende unerreichbar sind
-        int counter = 0;
-        for (int state : acceptingStates) {
-            if (unreachable.contains(state)) counter++;
-        }
-        if (counter == acceptingStates.size()) return true;
-        return false;
+        return getReachability().acceptsNothing();
     }
 
     @Override
     public Boolean acceptsEpsilonOnly() {
         //if (acceptsNothing()) return false;
-        Set<Integer> epsilonStates = new HashSet<>();
-        epsilonStates.add(0);
-        epsilonStates.addAll(getEpsilonStates(0));
-        int epsilonStatesSizeBefore;
-
-        do {
-            epsilonStatesSizeBefore = epsilonStates.size();
-            Set<Integer> epsStatesNew = new HashSet<>();
-            for (Integer state : epsilonStates) {
-                epsStatesNew.addAll(getEpsilonStates(state));
-            }
-            epsilonStates.addAll(epsStatesNew);
-        } while (epsilonStatesSizeBefore != epsilonStates.size());      //wenn keine neue Epsilon Zustaende hinzugefuegt werden, dann bricht die Schleife ab
+        Set<Integer> epsilonStates = getEpsilonClosure(initialState);
 
         //ueberpruefe, ob das leere Wort ueberhaupt akzeptiert wird
         Set<Integer> acceptedEpsStates = new HashSet<>();
@@ -560,8 +890,17 @@ public class NFAImpl implements NFA {
         //ueberpruefe, ob es irgendeinen anderen Weg gibt zu dem akzeptierenden Zustand zu kommen
         for (Integer state : acceptedEpsStates) {
             for (int i = 0; i < numStates; i++) {
-                if (transitions[i][state].size() > 0 && !transitions[i][state].contains(null) && !getUnreachableStatesNew().contains(i)) return false;
-                if (transitions[i][state].size() > 1) return false;
+                int charsToState = 0;
+                boolean epsToState = false;
+                for (Map.Entry<Character, Set<Integer>> entry : getSuccessors(i).entrySet()) {
+                    if (!entry.getValue().contains(state)) continue;
+                    charsToState++;
+                    if (entry.getKey() == null) epsToState = true;
+                }
+                CharRanges rangeToState = getRangeSuccessors(i).get(state);
+                if (rangeToState != null) charsToState += rangeToState.size();
+                if (charsToState > 0 && !epsToState && !unreachable.contains(i)) return false;
+                if (charsToState > 1) return false;
             }
         }
 
@@ -571,21 +910,7 @@ public class NFAImpl implements NFA {
     @Override
     public Boolean acceptsEpsilon() {
         //if (acceptsNothing()) return false;
-        Set<Integer> epsilonStates = new HashSet<>();
-        epsilonStates.add(0);
-        epsilonStates.addAll(getEpsilonStates(0));
-        int epsilonStatesSizeBefore;
-
-        do {
-            epsilonStatesSizeBefore = epsilonStates.size();
-            Set<Integer> epsStatesNew = new HashSet<>();
-            for (Integer state : epsilonStates) {
-                epsStatesNew.addAll(getEpsilonStates(state));
-            }
-            epsilonStates.addAll(epsStatesNew);
-        } while (epsilonStatesSizeBefore != epsilonStates.size());      //wenn keine neue Epsilon Zustaende hinzugefuegt werden, dann bricht die Schleife ab
-
-        for (Integer state : epsilonStates) {
+        for (int state : getEpsilonClosure().of(initialState)) {
             if (acceptingStates.contains(state)) return true;
         }
 
@@ -594,55 +919,34 @@ public class NFAImpl implements NFA {
 
     @Override
     public boolean subSetOf(NFA b) {
-        NFA n = this.minus(b);
-        if (n.acceptsNothing()) return true;
-        return false;
+        return counterexample(b) == null;
     }
 
-    public Set<Integer> getUnreachableStatesNew() {
-        Set<Integer> nextStates = new HashSet<>();
-        Set<Integer> reachable = new HashSet<>();
-        nextStates.add(0);
-        nextStates.addAll(getEpsilonStates(0));
-        reachable.addAll(nextStates);
-        int reachableSizeBefore;
-        do {
-            reachableSizeBefore = reachable.size();
-
-            Set<Integer> nextStatesNew = new HashSet<>();
-            for (int state : nextStates) {
-                for (char ch : alphabet) {
-                    nextStatesNew.addAll(getNextDeterministicStates(state, ch));
-                    nextStatesNew.addAll(getEpsilonStates(state));
-                }
-
-            }
-            nextStates.clear();
-            nextStates.addAll(nextStatesNew);
-            reachable.addAll(nextStatesNew);       //make a copy because of Concurent Modification Error
-
-        } while (reachableSizeBefore != reachable.size());
+    //liefert ein Wort, das dieser Automat akzeptiert, b aber nicht, oder null, wenn es keins gibt (dann ist L1 Teilmenge von L2)
+    //Die Suche bricht beim ersten solchen Wort ab, b wird nur soweit determinisiert, wie die Suche kommt.
+    public String counterexample(NFA b) {
+        return new DifferenceProduct(this, of(b)).findCounterexample();
+    }
 
+    //Zustaende, die vom Startzustand aus ueber keine Uebergaenge (Zeichen und Epsilon) erreichbar sind
+    public Set<Integer> getUnreachableStatesNew() {
+        Reachability reach = getReachability();
         Set<Integer> unreachable = new HashSet<>();
 
         for (int i = 0; i < numStates; i++) {
-            if (reachable.contains(i))
-                continue;
-            else {
-                unreachable.add(i);
-            }
+            if (!reach.isReachable(i)) unreachable.add(i);
         }
 
         return unreachable;
     }
 
+    //gleiche Sprache: Inklusion in beide Richtungen, jeweils mit der Antichain-Suche aus counterexample
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null) return false;
-        NFAImpl nfa = (NFAImpl) o;
-        //compare transition matrix
-        if (this.subSetOf(nfa) && nfa.subSetOf(this)) return true;
+        if (!(o instanceof NFA)) return false;
+        NFA nfa = (NFA) o;
+        if (this.subSetOf(nfa) && of(nfa).subSetOf(this)) return true;
         return false;
 
     }
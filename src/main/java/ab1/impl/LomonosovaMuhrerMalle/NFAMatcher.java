@@ -0,0 +1,145 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Vorbereiteter Matcher fuer viele Woerter mit demselben Automaten: Tabellen,
+ * Epsilon-Huellen und der Leerheitstest werden einmal beim Erzeugen berechnet,
+ * pro Wort wird nur noch Zeichen fuer Zeichen weitergeschaltet. Ein DFAImpl
+ * laeuft direkt ueber seine Transitionstabelle, ein NFA ueber die Bitvektor-Simulation.
+ * Der Matcher arbeitet auf dem Stand des Automaten beim Erzeugen, spaetere
+ * Aenderungen am Automaten sieht er nicht. Nicht thread-safe.
+ */
+public final class NFAMatcher {
+    //Puffergroesse beim Lesen aus einem Reader
+    private static final int READ_BUFFER = 8192;
+
+    private final boolean acceptsNothing;
+
+    //DFA: Kopie der Tabelle, state = -1 heisst kein Folgezustand mehr
+    private final SymbolTable symbols;
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int initialState;
+    private int state;
+
+    //NFA: Simulation mit eigenen Puffern
+    private final NFASimulation sim;
+    private long[] current;
+    private long[] next;
+
+    private boolean dead;
+    private char[] readBuffer;
+
+    NFAMatcher(NFAImpl nfa) {
+        if (nfa instanceof DFAImpl) {
+            DFAImpl dfa = (DFAImpl) nfa;
+            acceptsNothing = dfa.acceptsNothing();
+            symbols = dfa.getSymbolTable();
+            table = dfa.getTransitionTable().clone();
+            accepting = new boolean[dfa.getNumStates()];
+            for (int s : dfa.getAcceptingStates()) {
+                if (dfa.isExistingState(s)) accepting[s] = true;
+            }
+            initialState = dfa.getInitialState();
+            sim = null;
+        } else {
+            symbols = null;
+            table = null;
+            accepting = null;
+            initialState = -1;
+            sim = nfa.getSimulation();
+            acceptsNothing = sim.acceptsNothing();
+            current = sim.newSet();
+            next = sim.newSet();
+        }
+    }
+
+    public boolean matches(CharSequence w) throws IllegalCharacterException {
+        if (acceptsNothing) return false;  //es wird nichts akzeptiert
+        begin();
+        for (int i = 0; i < w.length(); i++) {
+            step(w.charAt(i));
+        }
+        return end();
+    }
+
+    //prueft die Zeichen buffer[offset .. offset + length - 1]
+    public boolean matches(char[] buffer, int offset, int length) throws IllegalCharacterException {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) throw new IndexOutOfBoundsException();
+        if (acceptsNothing) return false;
+        begin();
+        for (int i = offset; i < offset + length; i++) {
+            step(buffer[i]);
+        }
+        return end();
+    }
+
+    //liest den Reader bis zum Ende, das ganze Gelesene ist ein Wort
+    public boolean matches(Reader reader) throws IOException, IllegalCharacterException {
+        if (acceptsNothing) return false;
+        if (readBuffer == null) readBuffer = new char[READ_BUFFER];
+        begin();
+        int n;
+        while ((n = reader.read(readBuffer)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                step(readBuffer[i]);
+            }
+        }
+        return end();
+    }
+
+    //result[i] == matches(words.get(i))
+    public boolean[] matchesAll(List<? extends CharSequence> words) throws IllegalCharacterException {
+        boolean[] result = new boolean[words.size()];
+        int i = 0;
+        for (CharSequence w : words) {
+            result[i++] = matches(w);
+        }
+        return result;
+    }
+
+    //nur die akzeptierten Woerter, der Stream wird sequentiell verarbeitet (Matcher ist nicht thread-safe)
+    public <T extends CharSequence> Stream<T> filter(Stream<T> words) {
+        return words.sequential().filter(this::matches);
+    }
+
+    private void begin() {
+        dead = false;
+        if (sim == null) {
+            state = initialState;
+        } else {
+            sim.start(current);
+        }
+    }
+
+    //ein Zeichen weiter; ist keine Menge/kein Zustand mehr aktiv, wird nur noch das Zeichen geprueft
+    private void step(char c) throws IllegalCharacterException {
+        if (sim == null) {
+            int symbol = symbols.indexOf(c);
+            if (symbol < 0) throw new IllegalCharacterException();
+            if (!dead) {
+                state = table[state * symbols.size() + symbol];
+                dead = state < 0;
+            }
+            return;
+        }
+        int symbol = sim.symbolIndex(c);
+        if (dead) return;
+        sim.step(current, next, symbol);
+        long[] tmp = current;
+        current = next;
+        next = tmp;
+        dead = NFASimulation.isEmpty(current);
+    }
+
+    private boolean end() {
+        if (dead) return false;
+        return sim == null ? accepting[state] : sim.isAccepting(current);
+    }
+}
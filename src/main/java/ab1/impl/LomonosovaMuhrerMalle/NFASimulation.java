@@ -0,0 +1,210 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Simuliert einen NFAImpl mit Zustandsmengen als Bitvektoren (long[]). Die
+ * Folgezustaende pro (Zustand, Zeichen) werden einmal vorberechnet und enthalten
+ * bereits die Epsilon-Huelle, dadurch bleibt jede simulierte Menge epsilon-abgeschlossen.
+ * Nach dem Aufbau wird eine Instanz nicht mehr veraendert, accepts kann also von mehreren
+ * Threads gleichzeitig aufgerufen werden (jeder Aufruf hat seine eigenen Bitmengen).
+ */
+final class NFASimulation {
+    //bis zu dieser Groesse (in longs) werden die Folgezustaende als Bitmasken gespeichert
+    private static final int MAX_MASK_WORDS = 1 << 20;
+
+    private final int numStates;
+    private final int words;
+    private final SymbolTable symbols;
+    private final Set<Character> alphabet;
+    private final long[] initial;
+    private final long[] accepting;
+    private final EpsilonClosure closure;
+    //true, wenn vom Startzustand kein akzeptierender Zustand erreichbar ist
+    private final boolean acceptsNothing;
+    //entweder Bitmasken: masks[(s * numSymbols + i) * words + w] ...
+    private final long[] masks;
+    //... oder Listen (CSR): targets[offsets[s * numSymbols + i] .. offsets[s * numSymbols + i + 1]]
+    private final int[] offsets;
+    private final int[] targets;
+
+    NFASimulation(NFAImpl nfa) {
+        numStates = nfa.getNumStates();
+        words = Math.max(1, (numStates + 63) >>> 6);
+        alphabet = nfa.getAlphabet();
+        //gleichwertige Zeichen teilen sich eine Spalte, alle Tabellen sind pro Zeichenklasse
+        symbols = nfa.symbolClasses();
+        closure = nfa.getEpsilonClosure();
+
+        int numSymbols = symbols.size();
+        long[] set = new long[words];
+        boolean useMasks = (long) numStates * numSymbols * words <= MAX_MASK_WORDS;
+        masks = useMasks ? new long[numStates * numSymbols * words] : null;
+        offsets = useMasks ? null : new int[numStates * numSymbols + 1];
+        int[] targetList = new int[16];
+        int numTargets = 0;
+
+        for (int s = 0; s < numStates; s++) {
+            for (int i = 0; i < numSymbols; i++) {
+                Arrays.fill(set, 0L);
+                for (int t : nfa.getSuccessors(s, symbols.symbolAt(i))) {
+                    addClosure(set, t);
+                }
+                int row = s * numSymbols + i;
+                if (useMasks) {
+                    System.arraycopy(set, 0, masks, row * words, words);
+                    continue;
+                }
+                offsets[row] = numTargets;
+                for (int q = nextSetBit(set, 0); q >= 0; q = nextSetBit(set, q + 1)) {
+                    if (numTargets == targetList.length) targetList = Arrays.copyOf(targetList, 2 * numTargets);
+                    targetList[numTargets++] = q;
+                }
+            }
+        }
+        if (useMasks) {
+            targets = null;
+        } else {
+            offsets[numStates * numSymbols] = numTargets;
+            targets = Arrays.copyOf(targetList, numTargets);
+        }
+
+        initial = new long[words];
+        if (nfa.isExistingState(nfa.getInitialState())) addClosure(initial, nfa.getInitialState());
+        accepting = new long[words];
+        for (int s : nfa.getAcceptingStates()) {
+            if (s >= 0 && s < numStates) accepting[s >>> 6] |= 1L << s;
+        }
+
+        acceptsNothing = nfa.acceptsNothing();
+    }
+
+    boolean acceptsNothing() {
+        return acceptsNothing;
+    }
+
+    //fuegt die Epsilon-Huelle von state zu set hinzu
+    void addClosure(long[] set, int state) {
+        for (int q : closure.of(state)) {
+            set[q >>> 6] |= 1L << q;
+        }
+    }
+
+    int numSymbols() {
+        return symbols.size();
+    }
+
+    //Zeichen -> Klasse, die Spalten passen zu numSymbols() und step()
+    SymbolTable symbols() {
+        return symbols;
+    }
+
+    long[] newSet() {
+        return new long[words];
+    }
+
+    //set = Epsilon-Huelle des Startzustands
+    void start(long[] set) {
+        System.arraycopy(initial, 0, set, 0, words);
+    }
+
+    //set = Epsilon-Huelle von state
+    void closureOf(int state, long[] set) {
+        Arrays.fill(set, 0L);
+        addClosure(set, state);
+    }
+
+    //Spalte des Zeichens c, -1 wenn c nicht im Alphabet ist
+    int indexOf(char c) {
+        return symbols.indexOf(c);
+    }
+
+    //Spalte des Zeichens c, -1 wenn es keine Uebergaenge damit geben kann
+    int symbolIndex(char c) throws IllegalCharacterException {
+        int symbol = symbols.indexOf(c);
+        if (symbol < 0 && !alphabet.contains(c)) throw new IllegalCharacterException();
+        return symbol;
+    }
+
+    //to = Folgezustaende von from mit dem Zeichen (Index aus symbolIndex), from muss epsilon-abgeschlossen sein
+    void step(long[] from, long[] to, int symbol) {
+        Arrays.fill(to, 0L);
+        if (symbol < 0) return;
+        int numSymbols = symbols.size();
+        for (int w = 0; w < words; w++) {
+            long bits = from[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int row = s * numSymbols + symbol;
+                if (masks != null) {
+                    int base = row * words;
+                    for (int i = 0; i < words; i++) to[i] |= masks[base + i];
+                } else {
+                    for (int t = offsets[row]; t < offsets[row + 1]; t++) {
+                        int q = targets[t];
+                        to[q >>> 6] |= 1L << q;
+                    }
+                }
+            }
+        }
+    }
+
+    boolean isAccepting(long[] set) {
+        for (int w = 0; w < words; w++) {
+            if ((set[w] & accepting[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    //Zustaende der Bitmenge als Set<Integer>
+    static Set<Integer> toSet(long[] set) {
+        Set<Integer> result = new HashSet<>();
+        for (int q = nextSetBit(set, 0); q >= 0; q = nextSetBit(set, q + 1)) {
+            result.add(q);
+        }
+        return result;
+    }
+
+    static boolean isEmpty(long[] set) {
+        for (long bits : set) {
+            if (bits != 0) return false;
+        }
+        return true;
+    }
+
+    //naechster gesetzter Zustand ab from, -1 wenn es keinen gibt
+    static int nextSetBit(long[] set, int from) {
+        int w = from >>> 6;
+        if (w >= set.length) return -1;
+        long bits = set[w] & (-1L << from);
+        while (true) {
+            if (bits != 0) return (w << 6) + Long.numberOfTrailingZeros(bits);
+            if (++w == set.length) return -1;
+            bits = set[w];
+        }
+    }
+
+    boolean accepts(CharSequence w) throws IllegalCharacterException {
+        if (acceptsNothing) return false;  //es wird nichts akzeptiert
+        long[] cur = newSet();
+        long[] nxt = newSet();
+        start(cur);
+        for (int i = 0; i < w.length(); i++) {
+            step(cur, nxt, symbolIndex(w.charAt(i)));
+            long[] tmp = cur;
+            cur = nxt;
+            nxt = tmp;
+            if (isEmpty(cur)) {
+                //keine aktiven Zustaende mehr, die restlichen Zeichen muessen aber erlaubt sein
+                for (int j = i + 1; j < w.length(); j++) symbolIndex(w.charAt(j));
+                return false;
+            }
+        }
+        return isAccepting(cur);
+    }
+}
@@ -0,0 +1,177 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prueft lange Woerter parallel mit einem DFAImpl: die Eingabe wird in Abschnitte
+ * geteilt und jeder Abschnitt auf dem ForkJoinPool von allen Zustaenden aus
+ * gleichzeitig abgearbeitet. Das Ergebnis eines Abschnitts ist die Abbildung
+ * Startzustand -> Endzustand, die Abbildungen werden danach der Reihe nach
+ * zusammengesetzt. Startzustaende, die im selben Zustand landen, werden ab dann
+ * nur noch einmal weitergeschaltet, bei minimierten DFAs sind das meist nach
+ * wenigen Zeichen nur noch eine Handvoll. Thread-safe, solange der DFA nicht
+ * veraendert wird (der Matcher arbeitet auf einer Kopie der Tabelle).
+ */
+public final class ParallelDFAMatcher {
+    //kleinere Abschnitte lohnen sich nicht
+    public static final int DEFAULT_MIN_CHUNK = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int minChunk;
+    private final SymbolTable symbols;
+    private final int numSymbols;
+    //wie in DFAImpl, nur ist der fehlende Uebergang hier der Zustand dead = numStates
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int initialState;
+    private final int dead;
+
+    ParallelDFAMatcher(DFAImpl dfa, ForkJoinPool pool, int minChunk) {
+        if (minChunk < 1) throw new IllegalArgumentException("minChunk must be positive");
+        this.pool = pool;
+        this.minChunk = minChunk;
+        symbols = dfa.getSymbolTable();
+        numSymbols = symbols.size();
+        int numStates = dfa.getNumStates();
+        dead = numStates;
+        int[] dfaTable = dfa.getTransitionTable();
+        table = new int[(numStates + 1) * numSymbols];
+        for (int i = 0; i < table.length; i++) {
+            int next = i < numStates * numSymbols ? dfaTable[i] : -1;
+            table[i] = next < 0 ? dead : next;
+        }
+        accepting = new boolean[numStates + 1];
+        for (int s : dfa.getAcceptingStates()) {
+            if (dfa.isExistingState(s)) accepting[s] = true;
+        }
+        initialState = dfa.getInitialState();
+    }
+
+    public boolean matches(CharSequence w) throws IllegalCharacterException {
+        return matches(null, w, 0, w.length());
+    }
+
+    //prueft die Zeichen buffer[offset .. offset + length - 1]
+    public boolean matches(char[] buffer, int offset, int length) throws IllegalCharacterException {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) throw new IndexOutOfBoundsException();
+        return matches(buffer, null, offset, offset + length);
+    }
+
+    //genau eines von array und sequence ist gesetzt
+    private boolean matches(char[] array, CharSequence sequence, int from, int to) {
+        int length = to - from;
+        //mit nur einem Thread waere das Rechnen von allen Zustaenden aus reiner Mehraufwand
+        int chunks = pool.getParallelism() < 2 ? 1 : (int) Math.min(4L * pool.getParallelism(), length / minChunk);
+        if (chunks < 2) {
+            int state = initialState;
+            for (int i = from; i < to; i++) {
+                state = table[state * numSymbols + symbolIndex(array != null ? array[i] : sequence.charAt(i))];
+            }
+            return accepting[state];
+        }
+
+        int[][] mappings = new int[chunks][];
+        pool.invoke(new ChunkTask(array, sequence, from, length, chunks, mappings, 0, chunks));
+
+        //Abbildungen der Reihe nach anwenden
+        int state = initialState;
+        for (int[] mapping : mappings) {
+            state = mapping[state];
+        }
+        return accepting[state];
+    }
+
+    private int symbolIndex(char c) {
+        int symbol = symbols.indexOf(c);
+        if (symbol < 0) throw new IllegalCharacterException();
+        return symbol;
+    }
+
+    /*
+    Abbildung Startzustand -> Endzustand fuer die Zeichen from .. to - 1.
+    active enthaelt die verschiedenen aktuellen Zustaende, group[s] ist der Index in active,
+    bei dem Startzustand s gerade steht. Fallen zwei aktive Zustaende zusammen, wird einer gestrichen.
+     */
+    private int[] runChunk(char[] array, CharSequence sequence, int from, int to) {
+        int numStates = dead + 1;
+        int[] active = new int[numStates];
+        int[] group = new int[numStates];
+        for (int s = 0; s < numStates; s++) {
+            active[s] = s;
+            group[s] = s;
+        }
+        int numActive = numStates;
+        //merged[i] = neuer Index von active[i] nach dem Zusammenlegen, owner[t] = Index von Zustand t
+        int[] merged = new int[numStates];
+        int[] owner = new int[numStates];
+        Arrays.fill(owner, -1);
+
+        for (int i = from; i < to; i++) {
+            int symbol = symbolIndex(array != null ? array[i] : sequence.charAt(i));
+            if (numActive == 1) {
+                active[0] = table[active[0] * numSymbols + symbol];
+                continue;
+            }
+            int count = 0;
+            for (int j = 0; j < numActive; j++) {
+                int t = table[active[j] * numSymbols + symbol];
+                if (owner[t] < 0) {
+                    owner[t] = count;
+                    active[count++] = t;
+                }
+                merged[j] = owner[t];
+            }
+            for (int j = 0; j < count; j++) owner[active[j]] = -1;
+            if (count < numActive) {
+                for (int s = 0; s < numStates; s++) group[s] = merged[group[s]];
+            }
+            numActive = count;
+        }
+
+        int[] mapping = new int[numStates];
+        for (int s = 0; s < numStates; s++) mapping[s] = active[group[s]];
+        return mapping;
+    }
+
+    //teilt die Abschnitte first .. last - 1 rekursiv auf
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] array;
+        private final CharSequence sequence;
+        private final int from;
+        private final int length;
+        private final int chunks;
+        private final int[][] mappings;
+        private final int first;
+        private final int last;
+
+        ChunkTask(char[] array, CharSequence sequence, int from, int length, int chunks, int[][] mappings, int first, int last) {
+            this.array = array;
+            this.sequence = sequence;
+            this.from = from;
+            this.length = length;
+            this.chunks = chunks;
+            this.mappings = mappings;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                int start = from + (int) ((long) length * first / chunks);
+                int end = from + (int) ((long) length * last / chunks);
+                mappings[first] = runChunk(array, sequence, start, end);
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new ChunkTask(array, sequence, from, length, chunks, mappings, first, middle),
+                    new ChunkTask(array, sequence, from, length, chunks, mappings, middle, last));
+        }
+    }
+}
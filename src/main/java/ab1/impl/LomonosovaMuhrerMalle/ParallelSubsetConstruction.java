@@ -0,0 +1,112 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Potenzmengenkonstruktion wie in NFAImpl.toDFA, aber Ebene fuer Ebene parallel:
+ * alle Teilmengen einer Ebene der Breitensuche werden gleichzeitig auf dem
+ * ForkJoinPool weitergeschaltet. Neue Teilmengen bekommen ihre Nummer ueber
+ * ConcurrentHashMap.computeIfAbsent, daher haben die Teilmengen jeder Ebene
+ * fortlaufende Nummern und sind die naechste Ebene. Die Nummerierung innerhalb
+ * einer Ebene haengt von der Ausfuehrung ab, der DFA ist bis auf Umbenennung
+ * der Zustaende derselbe wie bei der sequentiellen Konstruktion.
+ */
+final class ParallelSubsetConstruction {
+    //so viele Teilmengen bearbeitet eine Teilaufgabe mindestens
+    private static final int MIN_TASK = 16;
+
+    private final NFASimulation sim;
+    private final int numSymbols;
+    private final ConcurrentHashMap<BitSet, Integer> ids = new ConcurrentHashMap<>();
+    //neu gefundene Teilmengen der laufenden Ebene: Nummer -> Bitvektor
+    private final ConcurrentHashMap<Integer, long[]> found = new ConcurrentHashMap<>();
+    private final AtomicInteger numSubsets = new AtomicInteger();
+
+    private final List<long[]> subsets = new ArrayList<>();
+    //wie in toDFA: next[i * numSymbols + j] = Folgezustand, -1 = keiner
+    private int[] next;
+
+    ParallelSubsetConstruction(NFASimulation sim) {
+        this.sim = sim;
+        this.numSymbols = sim.numSymbols();
+    }
+
+    void run(ForkJoinPool pool) {
+        long[] startSet = sim.newSet();
+        sim.start(startSet);
+        ids.put(BitSet.valueOf(startSet), numSubsets.getAndIncrement());
+        subsets.add(startSet);
+        next = new int[16 * Math.max(1, numSymbols)];
+
+        int levelStart = 0;
+        while (levelStart < subsets.size()) {
+            int levelEnd = subsets.size();
+            if ((long) levelEnd * numSymbols > next.length) {
+                next = Arrays.copyOf(next, (int) Math.max((long) levelEnd * numSymbols, 2L * next.length));
+            }
+            pool.invoke(new Level(levelStart, levelEnd));
+
+            //die neuen Teilmengen haben die Nummern levelEnd .. numSubsets - 1
+            for (int id = levelEnd; id < numSubsets.get(); id++) {
+                subsets.add(found.get(id));
+            }
+            found.clear();
+            levelStart = levelEnd;
+        }
+    }
+
+    List<long[]> getSubsets() {
+        return subsets;
+    }
+
+    int[] getTransitions() {
+        return next;
+    }
+
+    private void expand(int i, long[] buffer) {
+        long[] from = subsets.get(i);
+        for (int j = 0; j < numSymbols; j++) {
+            sim.step(from, buffer, j);
+            if (NFASimulation.isEmpty(buffer)) {
+                next[i * numSymbols + j] = -1;
+                continue;
+            }
+            next[i * numSymbols + j] = ids.computeIfAbsent(BitSet.valueOf(buffer), key -> {
+                int id = numSubsets.getAndIncrement();
+                found.put(id, buffer.clone());
+                return id;
+            });
+        }
+    }
+
+    //bearbeitet die Teilmengen first .. last - 1 einer Ebene
+    private final class Level extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int last;
+
+        Level(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first <= MIN_TASK) {
+                long[] buffer = sim.newSet();
+                for (int i = first; i < last; i++) expand(i, buffer);
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new Level(first, middle), new Level(middle, last));
+        }
+    }
+}
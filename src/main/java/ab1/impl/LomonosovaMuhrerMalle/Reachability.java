@@ -0,0 +1,116 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.util.Arrays;
+
+/**
+ * Erreichbare und nuetzliche Zustaende eines NFAImpl: erreichbar vom Startzustand aus
+ * (ueber Zeichen und Epsilon), nuetzlich, wenn von dort ein akzeptierender Zustand
+ * erreichbar ist. Beides wird einmal mit einer Breitensuche aufgebaut (vorwaerts bzw.
+ * rueckwaerts ueber Vorgaengerlisten) und bei jedem neuen Uebergang nur nachgefuehrt.
+ * Jeder Zustand wird dabei hoechstens einmal neu erreichbar bzw. nuetzlich, viele
+ * setTransition-Aufrufe kosten zusammen also nur linear viel Zeit, und acceptsNothing
+ * ist danach ein einzelner Array-Zugriff. Entfernte Uebergaenge machen einen Neuaufbau noetig.
+ */
+final class Reachability {
+    private final NFAImpl nfa;
+    private final int numStates;
+    //Nachfolger und Vorgaenger pro Zustand (ohne Zeichen; ein Paar kommt fuer jedes Zeichen, mit dem es neu dazukam, einmal vor)
+    private int[][] successors;
+    private int[] numSuccessors;
+    private int[][] predecessors;
+    private int[] numPredecessors;
+
+    private final boolean[] reachable;
+    private final boolean[] useful;
+    private final int[] queue;
+
+    Reachability(NFAImpl nfa) {
+        this.nfa = nfa;
+        numStates = nfa.getNumStates();
+        successors = new int[numStates][];
+        numSuccessors = new int[numStates];
+        predecessors = new int[numStates][];
+        numPredecessors = new int[numStates];
+        for (int s = 0; s < numStates; s++) {
+            int from = s;
+            nfa.forEachSuccessor(s, t -> addEdge(from, t));
+        }
+
+        reachable = new boolean[numStates];
+        useful = new boolean[numStates];
+        queue = new int[numStates];
+        if (nfa.isExistingState(nfa.getInitialState())) markReachable(nfa.getInitialState());
+        acceptingChanged();
+    }
+
+    private void addEdge(int from, int to) {
+        if (successors[from] == null) successors[from] = new int[2];
+        if (numSuccessors[from] == successors[from].length) successors[from] = Arrays.copyOf(successors[from], 2 * numSuccessors[from]);
+        successors[from][numSuccessors[from]++] = to;
+        if (predecessors[to] == null) predecessors[to] = new int[2];
+        if (numPredecessors[to] == predecessors[to].length) predecessors[to] = Arrays.copyOf(predecessors[to], 2 * numPredecessors[to]);
+        predecessors[to][numPredecessors[to]++] = from;
+    }
+
+    //neuer Uebergang from -> to (egal mit welchem Zeichen)
+    void transitionAdded(int from, int to) {
+        addEdge(from, to);
+        if (reachable[from] && !reachable[to]) markReachable(to);
+        if (useful[to] && !useful[from]) markUseful(from);
+    }
+
+    //die akzeptierenden Zustaende wurden ersetzt: nuetzliche Zustaende neu bestimmen
+    void acceptingChanged() {
+        Arrays.fill(useful, false);
+        for (int s : nfa.getAcceptingStates()) {
+            if (s >= 0 && s < numStates && !useful[s]) markUseful(s);
+        }
+    }
+
+    //Breitensuche vorwaerts ab start, nur ueber noch nicht erreichbare Zustaende
+    private void markReachable(int start) {
+        int size = 0;
+        reachable[start] = true;
+        queue[size++] = start;
+        for (int i = 0; i < size; i++) {
+            int s = queue[i];
+            for (int j = 0; j < numSuccessors[s]; j++) {
+                int t = successors[s][j];
+                if (!reachable[t]) {
+                    reachable[t] = true;
+                    queue[size++] = t;
+                }
+            }
+        }
+    }
+
+    //Breitensuche rueckwaerts ab start, nur ueber noch nicht nuetzliche Zustaende
+    private void markUseful(int start) {
+        int size = 0;
+        useful[start] = true;
+        queue[size++] = start;
+        for (int i = 0; i < size; i++) {
+            int s = queue[i];
+            for (int j = 0; j < numPredecessors[s]; j++) {
+                int p = predecessors[s][j];
+                if (!useful[p]) {
+                    useful[p] = true;
+                    queue[size++] = p;
+                }
+            }
+        }
+    }
+
+    boolean isReachable(int state) {
+        return reachable[state];
+    }
+
+    boolean isUseful(int state) {
+        return useful[state];
+    }
+
+    //die Sprache ist leer, wenn der Startzustand keinen akzeptierenden Zustand erreicht
+    boolean acceptsNothing() {
+        return !nfa.isExistingState(nfa.getInitialState()) || !useful[nfa.getInitialState()];
+    }
+}
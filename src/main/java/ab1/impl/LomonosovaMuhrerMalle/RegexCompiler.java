@@ -0,0 +1,342 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import ab1.exceptions.IllegalCharacterException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Uebersetzt einen regulaeren Ausdruck mit der Thompson-Konstruktion in einen NFAImpl.
+ * Der Ausdruck wird zuerst in einen Syntaxbaum zerlegt, danach werden alle Zustaende
+ * und Uebergaenge in einem Durchlauf in Listen geschrieben und erst am Ende in einen
+ * einzigen Automaten uebertragen - es entstehen keine Zwischenautomaten, die Groesse
+ * ist linear in der Laenge des Ausdrucks (Wiederholungen {m,n} kopieren ihren Teilausdruck).
+ *
+ * Syntax: Zeichen, \x (x als Zeichen, \n \t \r wie in Java), . (ein beliebiges Zeichen
+ * des Alphabets), [abc] [a-z] [^...] (Zeichenklassen), (...) (Gruppe), | (Alternative),
+ * * + ? {m} {m,} {m,n} (Wiederholungen, m und n hoechstens MAX_REPEAT, sonst IllegalArgumentException).
+ * Da verschachtelte Wiederholungen sich multiplizieren (((a{1000}){1000}){1000}), ist zusaetzlich
+ * die Gesamtzahl der Zustaende auf MAX_STATES begrenzt, darueber gibt es ebenfalls eine IllegalArgumentException.
+ * Klassen und '.' werden zu einem Bereichsuebergang (siehe CharRanges), nicht zu einem
+ * Uebergang pro Zeichen; mit CharRanges.ALL als Alphabet bleibt '.' also ein einziger Uebergang.
+ */
+final class RegexCompiler {
+    private static final int LITERAL = 0;
+    private static final int CONCAT = 1;
+    private static final int ALTERNATIVE = 2;
+    private static final int REPEAT = 3;
+
+    //max = UNBOUNDED bei *, + und {m,}
+    private static final int UNBOUNDED = -1;
+    //groesste erlaubte Zahl in {m,n}: der Teilausdruck wird so oft kopiert, {m,n} waere sonst ein einfacher Weg zu riesigen Automaten
+    static final int MAX_REPEAT = 1000;
+    //hoechstens so viele Zustaende darf der erzeugte Automat haben, wird schon beim Erzeugen geprueft
+    static final int MAX_STATES = 1 << 20;
+
+    private static final class Node {
+        final int kind;
+        //LITERAL: Zeichen bzw. Klasse (null bei '.'), negated bei [^...]
+        final CharRanges chars;
+        final boolean negated;
+        final List<Node> children;
+        final int min;
+        final int max;
+
+        Node(int kind, CharRanges chars, boolean negated, List<Node> children, int min, int max) {
+            this.kind = kind;
+            this.chars = chars;
+            this.negated = negated;
+            this.children = children;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private final String regex;
+    private int pos;
+    //alle im Ausdruck vorkommenden Zeichen, bilden das Alphabet, wenn keins angegeben ist
+    private CharRanges mentioned = CharRanges.EMPTY;
+
+    //Zeichen fuer '.' und [^...]
+    private CharRanges alphabetChars;
+    //Uebergaenge als parallele Listen, symbol == null ist Epsilon, bei Bereichen steht range statt symbol
+    private int numStates;
+    private int[] from = new int[64];
+    private int[] to = new int[64];
+    private Character[] symbol = new Character[64];
+    private CharRanges[] range = new CharRanges[64];
+    private int numTransitions;
+
+    private RegexCompiler(String regex) {
+        this.regex = regex;
+    }
+
+    //alphabet == null: das Alphabet sind die Zeichen, die im Ausdruck vorkommen
+    static NFAImpl compile(String regex, Set<Character> alphabet) throws IllegalArgumentException, IllegalCharacterException {
+        if (regex == null) throw new IllegalArgumentException("regex must not be null");
+        RegexCompiler compiler = new RegexCompiler(regex);
+        Node root = compiler.parseAlternative();
+        if (compiler.pos < regex.length()) throw compiler.error("unexpected ')'");
+
+        if (alphabet == null) {
+            alphabet = new HashSet<>(compiler.mentioned);
+        } else if (!compiler.mentioned.isSubsetOf(alphabet)) {
+            throw new IllegalCharacterException();
+        } else if (!(alphabet instanceof CharRanges)) {
+            //CharRanges ist unveraenderlich und kann direkt uebernommen werden
+            alphabet = new HashSet<>(alphabet);
+        }
+        compiler.alphabetChars = CharRanges.copyOf(alphabet);
+
+        int start = compiler.newState();
+        int end = compiler.emit(root, start);
+        Set<Integer> accepting = new HashSet<>();
+        accepting.add(end);
+        NFAImpl nfa = new NFAImpl(compiler.numStates, alphabet, accepting, start);
+        for (int i = 0; i < compiler.numTransitions; i++) {
+            if (compiler.range[i] != null) {
+                nfa.addRangeTransition(compiler.from[i], compiler.range[i], compiler.to[i]);
+            } else {
+                nfa.addTransition(compiler.from[i], compiler.symbol[i], compiler.to[i]);
+            }
+        }
+        return nfa;
+    }
+
+    //Alternative := Konkatenation ('|' Konkatenation)*
+    private Node parseAlternative() {
+        List<Node> options = new ArrayList<>();
+        options.add(parseConcat());
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            options.add(parseConcat());
+        }
+        return options.size() == 1 ? options.get(0) : new Node(ALTERNATIVE, null, false, options, 0, 0);
+    }
+
+    //Konkatenation := Wiederholung*
+    private Node parseConcat() {
+        List<Node> parts = new ArrayList<>();
+        while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+            parts.add(parseRepeat());
+        }
+        return parts.size() == 1 ? parts.get(0) : new Node(CONCAT, null, false, parts, 0, 0);
+    }
+
+    //Wiederholung := Atom ('*' | '+' | '?' | '{m}' | '{m,}' | '{m,n}')*
+    private Node parseRepeat() {
+        Node atom = parseAtom();
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            int min;
+            int max;
+            if (c == '*') {
+                min = 0;
+                max = UNBOUNDED;
+            } else if (c == '+') {
+                min = 1;
+                max = UNBOUNDED;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+            } else if (c == '{') {
+                pos++;
+                min = parseNumber();
+                max = min;
+                if (pos < regex.length() && regex.charAt(pos) == ',') {
+                    pos++;
+                    max = pos < regex.length() && regex.charAt(pos) == '}' ? UNBOUNDED : parseNumber();
+                }
+                if (pos >= regex.length() || regex.charAt(pos) != '}') throw error("expected '}'");
+                if (max != UNBOUNDED && max < min) throw error("invalid repetition {" + min + "," + max + "}");
+            } else {
+                break;
+            }
+            pos++;
+            atom = new Node(REPEAT, null, false, List.of(atom), min, max);
+        }
+        return atom;
+    }
+
+    private int parseNumber() {
+        int begin = pos;
+        while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) pos++;
+        if (begin == pos) throw error("expected a number");
+        int number;
+        try {
+            number = Integer.parseInt(regex.substring(begin, pos));
+        } catch (NumberFormatException e) {
+            throw error("number too large");
+        }
+        if (number > MAX_REPEAT) throw error("repetition count " + number + " exceeds " + MAX_REPEAT);
+        return number;
+    }
+
+    //Atom := Zeichen | '\' Zeichen | '.' | Klasse | '(' Alternative ')'
+    private Node parseAtom() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case '(': {
+                Node inner = parseAlternative();
+                if (pos >= regex.length() || regex.charAt(pos) != ')') throw error("expected ')'");
+                pos++;
+                return inner;
+            }
+            case '.':
+                return new Node(LITERAL, null, false, null, 0, 0);
+            case '[':
+                return parseClass();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw error("nothing to repeat");
+            case '\\':
+                return literal(parseEscape());
+            default:
+                return literal(c);
+        }
+    }
+
+    //Klasse := '[' '^'? (Zeichen | Zeichen '-' Zeichen)+ ']'
+    private Node parseClass() {
+        boolean negated = pos < regex.length() && regex.charAt(pos) == '^';
+        if (negated) pos++;
+        CharRanges chars = CharRanges.EMPTY;
+        boolean first = true;
+        while (true) {
+            if (pos >= regex.length()) throw error("expected ']'");
+            char c = regex.charAt(pos++);
+            if (c == ']' && !first) break;
+            if (c == '\\') c = parseEscape();
+            char last = c;
+            if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                pos++;
+                last = regex.charAt(pos++);
+                if (last == '\\') last = parseEscape();
+                if (last < c) throw error("invalid range " + c + "-" + last);
+            }
+            chars = chars.union(CharRanges.range(c, last));
+            first = false;
+        }
+        mentioned = mentioned.union(chars);
+        return new Node(LITERAL, chars, negated, null, 0, 0);
+    }
+
+    private char parseEscape() {
+        if (pos >= regex.length()) throw error("dangling '\\'");
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            default:
+                return c;
+        }
+    }
+
+    private Node literal(char c) {
+        CharRanges chars = CharRanges.of(c);
+        mentioned = mentioned.union(chars);
+        return new Node(LITERAL, chars, false, null, 0, 0);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at index " + pos + " in \"" + regex + "\"");
+    }
+
+    private int newState() {
+        if (numStates == MAX_STATES) {
+            throw new IllegalArgumentException("\"" + regex + "\" expands to more than " + MAX_STATES + " states");
+        }
+        return numStates++;
+    }
+
+    private void transition(int fromState, Character c, int toState) {
+        transition(fromState, c, null, toState);
+    }
+
+    private void transition(int fromState, Character c, CharRanges chars, int toState) {
+        if (numTransitions == from.length) {
+            from = Arrays.copyOf(from, 2 * numTransitions);
+            to = Arrays.copyOf(to, 2 * numTransitions);
+            symbol = Arrays.copyOf(symbol, 2 * numTransitions);
+            range = Arrays.copyOf(range, 2 * numTransitions);
+        }
+        from[numTransitions] = fromState;
+        symbol[numTransitions] = c;
+        range[numTransitions] = chars;
+        to[numTransitions++] = toState;
+    }
+
+    /*
+    Thompson: schreibt den Automaten fuer node ab dem Zustand start und liefert seinen Endzustand.
+    Teilautomaten werden nur ueber Epsilon-Uebergaenge verbunden, Schleifen bekommen eigene Zustaende.
+     */
+    private int emit(Node node, int start) {
+        switch (node.kind) {
+            case LITERAL: {
+                int end = newState();
+                CharRanges chars = literalChars(node);
+                if (chars.size() == 1) {
+                    transition(start, chars.first(), end);
+                } else {
+                    transition(start, null, chars, end);
+                }
+                return end;
+            }
+            case CONCAT: {
+                int current = start;
+                for (Node child : node.children) current = emit(child, current);
+                return current;
+            }
+            case ALTERNATIVE: {
+                int end = newState();
+                for (Node child : node.children) {
+                    int childStart = newState();
+                    transition(start, null, childStart);
+                    transition(emit(child, childStart), null, end);
+                }
+                return end;
+            }
+            default:
+                return emitRepeat(node.children.get(0), node.min, node.max, start);
+        }
+    }
+
+    private int emitRepeat(Node child, int min, int max, int start) {
+        int current = start;
+        for (int i = 0; i < min; i++) current = emit(child, current);
+        if (max == UNBOUNDED) {
+            //Stern: eigener Schleifenzustand, damit die Schleife nicht in umgebende Teile zurueckfuehrt
+            int loop = newState();
+            int end = newState();
+            transition(current, null, loop);
+            transition(emit(child, loop), null, loop);
+            transition(loop, null, end);
+            return end;
+        }
+        //optionale Kopien: jede kann direkt zum Ende springen
+        int end = newState();
+        for (int i = min; i < max; i++) {
+            transition(current, null, end);
+            int copy = newState();
+            transition(current, null, copy);
+            current = emit(child, copy);
+        }
+        transition(current, null, end);
+        return end;
+    }
+
+    private CharRanges literalChars(Node node) {
+        if (node.chars == null) return alphabetChars;
+        if (!node.negated) return node.chars;
+        return alphabetChars.minus(node.chars);
+    }
+}
@@ -0,0 +1,459 @@
+package ab1.impl.LomonosovaMuhrerMalle;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ordnet jedem Zeichen des Alphabets eine Spalte 0..size()-1 zu. Zeichen, die sich
+ * in einem Automaten ueberall gleich verhalten (gleiche Folgezustaende in jedem
+ * Zustand), koennen sich eine Spalte teilen (Aequivalenzklassen, siehe partition),
+ * Tabellen und Potenzmengenkonstruktion arbeiten dann pro Klasse statt pro Zeichen.
+ * Ohne Klassen hat jedes Zeichen seine eigene Spalte, aufsteigend nach Zeichen.
+ * Bei Bereichsuebergaengen (siehe CharRanges) sind die Klassen die Minterme der
+ * Bereiche, d.h. die groessten Teilmengen, die jeder Bereich ganz enthaelt oder ganz ausschliesst.
+ * Gespeichert werden Abschnitte (Bereiche aufeinanderfolgender Zeichen derselben Spalte),
+ * damit auch ein Alphabet wie CharRanges.ALL klein bleibt.
+ * Die Abbildung Zeichen -> Spalte ist zweistufig: das obere Byte waehlt eine Seite,
+ * das untere die Stelle darin. Das sind immer genau zwei Array-Zugriffe ohne
+ * Verzweigung, auch fuer Zeichen ausserhalb von Latin-1. Seiten ohne Zeichen des
+ * Alphabets teilen sich eine leere Seite, Seiten, die ganz in einer Spalte liegen,
+ * eine gemeinsame Seite pro Spalte; ein Alphabet wie CharRanges.ALL mit wenigen
+ * Abschnitten braucht also nur wenige Seiten.
+ */
+final class SymbolTable {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    //Seite fuer Bereiche ohne Zeichen des Alphabets, wird nie beschrieben
+    private static final int[] EMPTY_PAGE = uniformPage(-1);
+
+    //Abschnitt g ist start[g] .. end[g] (beide inklusive) und liegt ganz in Spalte column[g],
+    //aufsteigend und disjunkt, angrenzende Abschnitte derselben Spalte sind verschmolzen
+    private final char[] start;
+    private final char[] end;
+    private final int[] column;
+    //pages[c >>> PAGE_BITS][c & PAGE_MASK] = Spalte des Zeichens c, -1 wenn c nicht im Alphabet ist
+    private final int[][] pages;
+    private final int numClasses;
+    //kleinstes Zeichen und Anzahl Zeichen jeder Spalte
+    private final char[] representative;
+    private final int[] classSize;
+    //Zeichen jeder Spalte als Bereiche, wird erst bei Bedarf aufgebaut (volatile wie die Caches in NFAImpl)
+    private volatile CharRanges[] columnRanges;
+
+    SymbolTable(Set<Character> alphabet) {
+        this(singleChars(CharRanges.copyOf(alphabet)));
+    }
+
+    private SymbolTable(Pieces pieces) {
+        this(pieces, pieces.origin);
+    }
+
+    //Stueck k liegt in Spalte classOf[k] (ohne Luecken nummeriert), die Stuecke sind aufsteigend und disjunkt
+    private SymbolTable(Pieces pieces, int[] classOf) {
+        char[] lo = new char[pieces.count];
+        char[] hi = new char[pieces.count];
+        int[] columns = new int[pieces.count];
+        int n = 0;
+        int classes = 0;
+        for (int k = 0; k < pieces.count; k++) {
+            if (n > 0 && columns[n - 1] == classOf[k] && hi[n - 1] + 1 == pieces.start[k]) {
+                hi[n - 1] = pieces.end[k];
+            } else {
+                lo[n] = pieces.start[k];
+                hi[n] = pieces.end[k];
+                columns[n++] = classOf[k];
+            }
+            classes = Math.max(classes, classOf[k] + 1);
+        }
+        start = Arrays.copyOf(lo, n);
+        end = Arrays.copyOf(hi, n);
+        column = Arrays.copyOf(columns, n);
+        numClasses = classes;
+        representative = new char[numClasses];
+        classSize = new int[numClasses];
+        int chars = 0;
+        for (int g = 0; g < n; g++) {
+            if (classSize[column[g]] == 0) representative[column[g]] = start[g];
+            classSize[column[g]] += end[g] - start[g] + 1;
+            chars += end[g] - start[g] + 1;
+        }
+
+        pages = new int[(Character.MAX_VALUE + 1) >>> PAGE_BITS][];
+        Arrays.fill(pages, EMPTY_PAGE);
+        Map<Integer, int[]> uniform = new HashMap<>();
+        for (int g = 0; g < n; g++) {
+            int first = start[g];
+            while (first <= end[g]) {
+                int page = first >>> PAGE_BITS;
+                int last = Math.min(end[g], first | PAGE_MASK);
+                if ((first & PAGE_MASK) == 0 && (last & PAGE_MASK) == PAGE_MASK) {
+                    //ganze Seite in einer Spalte, kein anderer Abschnitt beruehrt sie
+                    pages[page] = uniform.computeIfAbsent(column[g], SymbolTable::uniformPage);
+                } else {
+                    if (pages[page] == EMPTY_PAGE) pages[page] = uniformPage(-1);
+                    Arrays.fill(pages[page], first & PAGE_MASK, (last & PAGE_MASK) + 1, column[g]);
+                }
+                first = last + 1;
+            }
+        }
+    }
+
+    private static int[] uniformPage(int column) {
+        int[] page = new int[PAGE_SIZE];
+        Arrays.fill(page, column);
+        return page;
+    }
+
+    //alle Zeichen des Alphabets in einer Spalte (z.B. fuer einen DFA ohne Uebergaenge)
+    static SymbolTable singleColumn(Set<Character> alphabet) {
+        Pieces pieces = Pieces.of(CharRanges.copyOf(alphabet));
+        return new SymbolTable(pieces, new int[pieces.count]);
+    }
+
+    /*
+    Spaltenaufteilung aus gespeicherten Abschnitten (siehe AutomatonFormat): Abschnitt g ist lo[g] .. hi[g] in
+    Spalte columns[g]. Die Abschnitte muessen aufsteigend und disjunkt sein, zusammen genau das Alphabet abdecken
+    und jede der numColumns Spalten verwenden, sonst gibt es eine IllegalArgumentException.
+     */
+    static SymbolTable ofSegments(CharRanges alphabet, char[] lo, char[] hi, int[] columns, int numColumns) throws IllegalArgumentException {
+        //jede Spalte braucht mindestens einen Abschnitt
+        if (numColumns < 0 || numColumns > lo.length) throw new IllegalArgumentException("invalid number of columns " + numColumns);
+        Pieces pieces = new Pieces(lo.length);
+        char[] ranges = new char[2 * lo.length];
+        boolean[] used = new boolean[numColumns];
+        for (int g = 0; g < lo.length; g++) {
+            if (hi[g] < lo[g] || g > 0 && lo[g] <= hi[g - 1]) throw new IllegalArgumentException("invalid segment " + g);
+            if (columns[g] < 0 || columns[g] >= numColumns) throw new IllegalArgumentException("invalid column " + columns[g]);
+            used[columns[g]] = true;
+            pieces.add(lo[g], hi[g], columns[g]);
+            ranges[2 * g] = lo[g];
+            ranges[2 * g + 1] = hi[g];
+        }
+        for (boolean u : used) {
+            if (!u) throw new IllegalArgumentException("unused column");
+        }
+        if (!CharRanges.ofRanges(ranges, ranges.length).equals(alphabet)) throw new IllegalArgumentException("segments do not match the alphabet");
+        return new SymbolTable(pieces);
+    }
+
+    //jedes Zeichen ein eigenes Stueck, origin = laufende Nummer
+    private static Pieces singleChars(CharRanges chars) {
+        Pieces pieces = new Pieces(chars.size());
+        for (int r = 0; r < chars.numRanges(); r++) {
+            for (int c = chars.rangeStart(r); c <= chars.rangeEnd(r); c++) pieces.add(c, c, pieces.count);
+        }
+        return pieces;
+    }
+
+    /*
+    Aequivalenzklassen der Zeichen fuer nfa: zwei Zeichen landen in derselben Spalte, wenn sie von jedem Zustand
+    aus zu denselben Folgezustaenden fuehren.
+    1) Grenzen: jedes einzelne Zeichen c eines Uebergangs ergibt die Grenzen c und c + 1, jeder Bereich [lo, hi]
+       die Grenzen lo und hi + 1. Die Bereiche des Alphabets werden an diesen Grenzen in Abschnitte geschnitten,
+       innerhalb eines Abschnitts verhalten sich alle Zeichen gleich.
+    2) Verfeinerung Zustand fuer Zustand ueber die Abschnitte: die Klasse eines Abschnitts wird zum Paar
+       (bisherige Klasse, Folgezustaende im aktuellen Zustand), O(Zustaende * Abschnitte).
+    Die Anzahl der Abschnitte haengt nur von den Uebergaengen ab, nicht von der Groesse des Alphabets.
+     */
+    static SymbolTable partition(Set<Character> alphabet, NFAImpl nfa) {
+        //1) Abschnitte
+        Bounds bounds = new Bounds();
+        for (int s = 0; s < nfa.getNumStates(); s++) {
+            for (Character c : nfa.getSuccessors(s).keySet()) {
+                if (c == null) continue;
+                bounds.add(c);
+                bounds.add(c + 1);
+            }
+            for (CharRanges chars : nfa.getRangeSuccessors(s).values()) bounds.addAll(chars);
+        }
+        Pieces segments = cut(Pieces.of(CharRanges.copyOf(alphabet)), bounds);
+
+        //2) Verfeinerung ueber die Abschnitte
+        int[] classOf = new int[segments.count];
+        int[] refined = new int[segments.count];
+        Map<Set<Integer>, Integer> targetIds = new HashMap<>();
+        Map<Long, Integer> newClasses = new HashMap<>();
+        for (int s = 0; s < nfa.getNumStates(); s++) {
+            Map<Character, Set<Integer>> successors = nfa.getSuccessors(s);
+            boolean onlyEpsilon = successors.isEmpty() || successors.size() == 1 && successors.containsKey(null);
+            if (onlyEpsilon && nfa.getRangeSuccessors(s).isEmpty()) continue;
+            targetIds.clear();
+            newClasses.clear();
+            for (int g = 0; g < segments.count; g++) {
+                Set<Integer> targets = nfa.getSuccessors(s, segments.start[g]);
+                int target = targets.isEmpty() ? 0 : targetIds.computeIfAbsent(targets, t -> targetIds.size() + 1);
+                refined[g] = newClasses.computeIfAbsent((long) classOf[g] << 32 | target, key -> newClasses.size());
+            }
+            int[] tmp = classOf;
+            classOf = refined;
+            refined = tmp;
+        }
+        return new SymbolTable(segments, classOf);
+    }
+
+    /*
+    Gemeinsame Verfeinerung fuer Produktkonstruktionen: zwei Zeichen des Alphabets teilen sich eine Spalte,
+    wenn sie in a und in b jeweils in derselben Spalte liegen (Zeichen ausserhalb von a bzw. b zaehlen als
+    eigene Spalte -1). Geschnitten wird an den Abschnittsgrenzen von a und b.
+     */
+    static SymbolTable product(Set<Character> alphabet, SymbolTable a, SymbolTable b) {
+        Bounds bounds = new Bounds();
+        a.addSegmentBounds(bounds);
+        b.addSegmentBounds(bounds);
+        Pieces pieces = cut(Pieces.of(CharRanges.copyOf(alphabet)), bounds);
+        int[] classOf = new int[pieces.count];
+        Map<Long, Integer> ids = new HashMap<>();
+        for (int k = 0; k < pieces.count; k++) {
+            long key = (long) (a.indexOf(pieces.start[k]) + 1) << 32 | (b.indexOf(pieces.start[k]) + 1);
+            classOf[k] = ids.computeIfAbsent(key, id -> ids.size());
+        }
+        return new SymbolTable(pieces, classOf);
+    }
+
+    private void addSegmentBounds(Bounds bounds) {
+        for (int g = 0; g < start.length; g++) {
+            bounds.add(start[g]);
+            bounds.add(end[g] + 1);
+        }
+    }
+
+    /*
+    Fasst Spalten einer Tabelle (table[s * stride + Spalte], rows Zeilen) zusammen, die in jeder Zeile gleich sind.
+    Liefert this, wenn es nichts zusammenzufassen gibt.
+     */
+    SymbolTable mergeColumns(int[] table, int rows, int stride) {
+        Map<IntBuffer, Integer> columns = new HashMap<>();
+        int[] columnClass = new int[numClasses];
+        for (int j = 0; j < numClasses; j++) {
+            int[] values = new int[rows];
+            for (int s = 0; s < rows; s++) values[s] = table[s * stride + j];
+            columnClass[j] = columns.computeIfAbsent(IntBuffer.wrap(values), key -> columns.size());
+        }
+        if (columns.size() == numClasses) return this;
+        int[] classOf = new int[start.length];
+        for (int g = 0; g < start.length; g++) classOf[g] = columnClass[column[g]];
+        return new SymbolTable(segments(), renumber(classOf));
+    }
+
+    //c bekommt eine eigene Spalte (die neue letzte Spalte size()), die restlichen Spalten bleiben;
+    //nur der Abschnitt von c wird geteilt
+    SymbolTable split(char c) {
+        int g = segmentOf(c);
+        if (g < 0 || classSize[column[g]] == 1) return this;
+        Pieces pieces = new Pieces(start.length + 2);
+        for (int i = 0; i < g; i++) pieces.add(start[i], end[i], column[i]);
+        if (c > start[g]) pieces.add(start[g], c - 1, column[g]);
+        pieces.add(c, c, numClasses);
+        if (c < end[g]) pieces.add(c + 1, end[g], column[g]);
+        for (int i = g + 1; i < start.length; i++) pieces.add(start[i], end[i], column[i]);
+        return new SymbolTable(pieces);
+    }
+
+    //die Zeichen aus chars bilden danach ganze Spalten: teilweise getroffene Spalten werden geteilt,
+    //der getroffene Teil bekommt eine neue Spalte ab size(). Liefert this, wenn nichts zu teilen ist.
+    SymbolTable split(CharRanges chars) {
+        //1) wie viele Zeichen jeder Spalte in chars liegen (Abschnitte und Bereiche gemeinsam durchlaufen)
+        int[] inside = new int[numClasses];
+        for (int g = 0, r = 0; g < start.length && r < chars.numRanges(); ) {
+            int lo = Math.max(start[g], chars.rangeStart(r));
+            int hi = Math.min(end[g], chars.rangeEnd(r));
+            if (lo <= hi) inside[column[g]] += hi - lo + 1;
+            if (end[g] < chars.rangeEnd(r)) {
+                g++;
+            } else {
+                r++;
+            }
+        }
+        int[] newColumn = new int[numClasses];
+        int classes = numClasses;
+        for (int j = 0; j < numClasses; j++) {
+            newColumn[j] = inside[j] == 0 || inside[j] == classSize[j] ? j : classes++;
+        }
+        if (classes == numClasses) return this;
+
+        //2) Abschnitte an den Grenzen von chars schneiden, die Stuecke in chars wandern in die neue Spalte
+        Bounds bounds = new Bounds();
+        bounds.addAll(chars);
+        Pieces pieces = cut(segments(), bounds);
+        int[] classOf = new int[pieces.count];
+        for (int k = 0; k < pieces.count; k++) {
+            int old = column[pieces.origin[k]];
+            classOf[k] = chars.contains(pieces.start[k]) ? newColumn[old] : old;
+        }
+        return new SymbolTable(pieces, classOf);
+    }
+
+    //Spalten nach ihrem kleinsten Zeichen durchnummerieren
+    private static int[] renumber(int[] classOf) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        int[] result = new int[classOf.length];
+        for (int i = 0; i < classOf.length; i++) {
+            result[i] = ids.computeIfAbsent(classOf[i], key -> ids.size());
+        }
+        return result;
+    }
+
+    //die eigenen Abschnitte als Stuecke, origin = Nummer des Abschnitts
+    private Pieces segments() {
+        Pieces pieces = new Pieces(start.length);
+        for (int g = 0; g < start.length; g++) pieces.add(start[g], end[g], g);
+        return pieces;
+    }
+
+    /*
+    Schneidet die Stuecke von intervals an allen Grenzen aus bounds (eine Grenze b trennt b - 1 von b),
+    origin eines Ergebnisstuecks = Nummer des Stuecks von intervals, aus dem es stammt.
+     */
+    private static Pieces cut(Pieces intervals, Bounds bounds) {
+        int[] sorted = bounds.sorted();
+        Pieces result = new Pieces(intervals.count + sorted.length);
+        int b = 0;
+        for (int i = 0; i < intervals.count; i++) {
+            int lo = intervals.start[i];
+            while (b < sorted.length && sorted[b] <= lo) b++;
+            while (b < sorted.length && sorted[b] <= intervals.end[i]) {
+                result.add(lo, sorted[b] - 1, i);
+                lo = sorted[b];
+                while (b < sorted.length && sorted[b] <= lo) b++;
+            }
+            result.add(lo, intervals.end[i], i);
+        }
+        return result;
+    }
+
+    //Abschnitt, der c enthaelt, -1 wenn c nicht im Alphabet ist
+    private int segmentOf(char c) {
+        int lo = 0;
+        int hi = start.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c < start[mid]) {
+                hi = mid - 1;
+            } else if (c > end[mid]) {
+                lo = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    //Spalte des Zeichens c, -1 wenn c nicht im Alphabet ist
+    int indexOf(char c) {
+        return pages[c >>> PAGE_BITS][c & PAGE_MASK];
+    }
+
+    //kleinstes Zeichen der Spalte i
+    char symbolAt(int i) {
+        return representative[i];
+    }
+
+    //Anzahl der Zeichen in Spalte i
+    int classSize(int i) {
+        return classSize[i];
+    }
+
+    //alle Zeichen der Spalte i als Bereiche
+    CharRanges columnRanges(int i) {
+        CharRanges[] cached = columnRanges;
+        if (cached == null) {
+            int[] count = new int[numClasses];
+            for (int g = 0; g < start.length; g++) count[column[g]] += 2;
+            char[][] ranges = new char[numClasses][];
+            for (int j = 0; j < numClasses; j++) {
+                ranges[j] = new char[count[j]];
+                count[j] = 0;
+            }
+            for (int g = 0; g < start.length; g++) {
+                ranges[column[g]][count[column[g]]++] = start[g];
+                ranges[column[g]][count[column[g]]++] = end[g];
+            }
+            cached = new CharRanges[numClasses];
+            for (int j = 0; j < numClasses; j++) cached[j] = CharRanges.ofRanges(ranges[j], count[j]);
+            columnRanges = cached;
+        }
+        return cached[i];
+    }
+
+    //Anzahl Spalten
+    int size() {
+        return numClasses;
+    }
+
+    //Abschnitte g = 0 .. numSegments() - 1, aufsteigend: Zeichen segmentStart(g) .. segmentEnd(g) in Spalte segmentColumn(g)
+    int numSegments() {
+        return start.length;
+    }
+
+    char segmentStart(int g) {
+        return start[g];
+    }
+
+    char segmentEnd(int g) {
+        return end[g];
+    }
+
+    int segmentColumn(int g) {
+        return column[g];
+    }
+
+    //aufsteigende, disjunkte Zeichenbereiche start[k] .. end[k] mit je einer Zahl origin[k]
+    private static final class Pieces {
+        private char[] start;
+        private char[] end;
+        private int[] origin;
+        private int count;
+
+        Pieces(int capacity) {
+            start = new char[Math.max(capacity, 1)];
+            end = new char[start.length];
+            origin = new int[start.length];
+        }
+
+        static Pieces of(CharRanges chars) {
+            Pieces pieces = new Pieces(chars.numRanges());
+            for (int r = 0; r < chars.numRanges(); r++) pieces.add(chars.rangeStart(r), chars.rangeEnd(r), r);
+            return pieces;
+        }
+
+        void add(int lo, int hi, int from) {
+            if (count == start.length) {
+                start = Arrays.copyOf(start, 2 * count);
+                end = Arrays.copyOf(end, 2 * count);
+                origin = Arrays.copyOf(origin, 2 * count);
+            }
+            start[count] = (char) lo;
+            end[count] = (char) hi;
+            origin[count++] = from;
+        }
+    }
+
+    //Schnittgrenzen fuer cut (Duplikate erlaubt)
+    private static final class Bounds {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int bound) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = bound;
+        }
+
+        //Anfang und Ende + 1 jedes Bereichs
+        void addAll(CharRanges chars) {
+            for (int r = 0; r < chars.numRanges(); r++) {
+                add(chars.rangeStart(r));
+                add(chars.rangeEnd(r) + 1);
+            }
+        }
+
+        int[] sorted() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
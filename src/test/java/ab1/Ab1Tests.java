@@ -1,10 +1,24 @@
 package ab1;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,7 +26,19 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ab1.exceptions.IllegalCharacterException;
 import ab1.impl.LomonosovaMuhrerMalle.Ab1Impl;
+import ab1.impl.LomonosovaMuhrerMalle.AutomatonFormat;
+import ab1.impl.LomonosovaMuhrerMalle.CharRanges;
+import ab1.impl.LomonosovaMuhrerMalle.CompiledDFA;
+import ab1.impl.LomonosovaMuhrerMalle.DFAFileScanner;
+import ab1.impl.LomonosovaMuhrerMalle.DFAImpl;
+import ab1.impl.LomonosovaMuhrerMalle.FrozenDFA;
+import ab1.impl.LomonosovaMuhrerMalle.LazyDFA;
+import ab1.impl.LomonosovaMuhrerMalle.MultiPatternMatcher;
+import ab1.impl.LomonosovaMuhrerMalle.NFAImpl;
+import ab1.impl.LomonosovaMuhrerMalle.NFAMatcher;
+import ab1.impl.LomonosovaMuhrerMalle.ParallelDFAMatcher;
 
 public class Ab1Tests {
 	private NFA n1; // leere Menge
@@ -1424,6 +1450,812 @@ public class Ab1Tests {
 		gesamtPunkte++;
 	}
 
+	@Test
+	public void NFA_TransitionsView() {
+		// getTransitions ist nur eine Ansicht, sie folgt jeder Aenderung und kann selbst nicht veraendert werden
+		NFA n = factory.createNFA(3, chars, Set.of(2), 0);
+		n.setTransition(0, 'a', 1);
+		n.setTransition(0, 'b', 1);
+		n.setTransition(1, null, 2);
+
+		Set<Character>[][] transitions = n.getTransitions();
+		assertEquals(Set.of('a', 'b'), transitions[0][1]);
+		assertTrue(transitions[1][2].contains(null));
+		assertTrue(transitions[2][0].isEmpty());
+		assertThrows(UnsupportedOperationException.class, () -> transitions[0][1].add('c'));
+
+		n.clearTransitions(0, 'a');
+		assertEquals(Set.of('b'), n.getTransitions()[0][1]);
+		assertTrue(n.getNextStates(0, 'a').isEmpty());
+		// mit Epsilon-Huelle
+		assertEquals(Set.of(1, 2), n.getNextStates(0, 'b'));
+		assertTrue(n.accepts("b"));
+		assertFalse(n.accepts("a"));
+	}
+
+	@Test
+	public void DFA_TransitionTable() {
+		DFA d = factory.createDFA(2, chars, Set.of(1), 0);
+		d.setTransition(0, 'a', 1);
+		// ein DFA hat pro Zeichen hoechstens einen Folgezustand, setTransition ersetzt ihn
+		d.setTransition(0, 'a', 0);
+		d.setTransition(0, 'b', 1);
+		assertEquals(0, d.getNextState(0, 'a'));
+		assertEquals(1, d.getNextState(0, 'b'));
+		assertNull(d.getNextState(0, 'c'));
+		assertEquals(Set.of(0), d.getNextStates(0, 'a'));
+
+		// Epsilon und Zeichen ausserhalb des Alphabets werden abgelehnt, ohne etwas zu veraendern
+		assertThrows(IllegalCharacterException.class, () -> d.setTransition(0, null, 1));
+		assertThrows(IllegalCharacterException.class, () -> d.setTransition(0, 'x', 1));
+		assertThrows(IllegalCharacterException.class, () -> d.getNextState(0, 'x'));
+		assertEquals(1, d.getNextState(0, 'b'));
+
+		d.reset();
+		assertEquals(0, d.doStep('a'));
+		assertEquals(1, d.doStep('b'));
+		assertTrue(d.isInAcceptingState());
+		assertThrows(IllegalStateException.class, () -> d.doStep('a'));
+
+		d.clearTransitions(0, 'b');
+		assertNull(d.getNextState(0, 'b'));
+		assertTrue(d.acceptsNothing());
+
+		// Zeichen ausserhalb von Latin-1 haben ihre eigene Seite in der Zeichentabelle
+		DFA euro = factory.createDFA(2, Set.of('a', '\u20ac', '\uffff'), Set.of(1), 0);
+		euro.setTransition(0, '\u20ac', 1);
+		euro.setTransition(1, '\uffff', 0);
+		assertEquals(1, euro.getNextState(0, '\u20ac'));
+		assertNull(euro.getNextState(0, '\uffff'));
+		assertThrows(IllegalCharacterException.class, () -> euro.getNextState(0, '\u20ad'));
+		assertTrue(euro.accepts("\u20ac\uffff\u20ac"));
+	}
+
+	@Test
+	public void NFA_AcceptsConcurrent() {
+		// accepts darf von mehreren Threads gleichzeitig auf demselben Automaten aufgerufen werden
+		List<String> words = allWords(7);
+		DFA d = n12.toDFA();
+		for (int i = 0; i < 10; i++) {
+			words.parallelStream().forEach(w -> assertEquals(w.matches("(abc|ab)+"), n12.accepts(w).booleanValue(), w));
+			words.parallelStream().forEach(w -> assertEquals(w.matches("(abc|ab)+"), d.accepts(w).booleanValue(), w));
+		}
+	}
+
+	@Test
+	public void NFA_EpsilonClosure() {
+		// Epsilon-Kreis 0 -> 1 -> 2 -> 0, nur von 2 aus geht es mit a weiter
+		NFA n = factory.createNFA(4, chars, Set.of(3), 0);
+		n.setTransition(0, null, 1);
+		n.setTransition(1, null, 2);
+		n.setTransition(2, null, 0);
+		n.setTransition(2, 'a', 3);
+		assertTrue(n.accepts("a"));
+		assertFalse(n.accepts("aa"));
+		assertEquals(Set.of(3), n.getNextStates(1, 'a'));
+
+		// die zwischengespeicherten Huellen muessen neue Uebergaenge beruecksichtigen
+		n.setTransition(3, null, 1);
+		assertTrue(n.accepts("aa"));
+		assertEquals(Set.of(0, 1, 2, 3), n.getNextStates(0, 'a'));
+		n.clearTransitions(3, null);
+		assertFalse(n.accepts("aa"));
+		assertFalse(n.acceptsEpsilon());
+	}
+
+	@Test
+	public void ToDFA_Subsets() {
+		// (a|b)*a(a|b)^9: der DFA muss sich die letzten 10 Zeichen merken, also 2^10 Teilmengen
+		int n = 9;
+		NFA nfa = factory.createNFA(n + 2, Set.of('a', 'b'), Set.of(n + 1), 0);
+		nfa.setTransition(0, 'a', 0);
+		nfa.setTransition(0, 'b', 0);
+		nfa.setTransition(0, 'a', 1);
+		for (int s = 1; s <= n; s++) {
+			nfa.setTransition(s, 'a', s + 1);
+			nfa.setTransition(s, 'b', s + 1);
+		}
+		DFA dfa = nfa.toDFA();
+		assertEquals(1 << (n + 1), dfa.getNumStates());
+		for (int bits = 0; bits < 1 << 12; bits++) {
+			String w = Integer.toBinaryString(bits | 1 << 12).substring(1).replace('0', 'a').replace('1', 'b');
+			assertEquals(w.charAt(w.length() - n - 1) == 'a', dfa.accepts(w), w);
+		}
+	}
+
+	@Test
+	public void DFA_Minimize() {
+		// (a|b)*abb
+		NFA n = factory.createNFA(4, Set.of('a', 'b'), Set.of(3), 0);
+		n.setTransition(0, 'a', 0);
+		n.setTransition(0, 'b', 0);
+		n.setTransition(0, 'a', 1);
+		n.setTransition(1, 'b', 2);
+		n.setTransition(2, 'b', 3);
+		DFA d = n.toDFA();
+		Integer[][] before = nextStates(d);
+		DFA m = d.minimize();
+		assertEquals(4, m.getNumStates());
+		assertTrue(isValidDFA(m));
+		assertTrue(m.equals(n));
+		// minimize liefert einen neuen Automaten und laesst d unveraendert
+		assertArrayEquals(before, nextStates(d));
+
+		// das vierte Zeichen von hinten ist ein a: 2^4 Zustaende
+		NFA last = factory.createNFA(5, Set.of('a', 'b'), Set.of(4), 0);
+		last.setTransition(0, 'a', 0);
+		last.setTransition(0, 'b', 0);
+		last.setTransition(0, 'a', 1);
+		for (int s = 1; s < 4; s++) {
+			last.setTransition(s, 'a', s + 1);
+			last.setTransition(s, 'b', s + 1);
+		}
+		assertEquals(16, last.toDFA().minimize().getNumStates());
+		// ohne Fallenzustand bleibt fuer [ab]* ein Zustand, fuer die leere Sprache nur der Startzustand
+		assertEquals(1, d4.minimize().getNumStates());
+		assertEquals(1, d1.minimize().getNumStates());
+		assertTrue(d1.minimize().acceptsNothing());
+
+		// mit autoMinimize ist schon das Ergebnis von toDFA minimal
+		Ab1Impl minimizing = new Ab1Impl();
+		minimizing.setAutoMinimize(true);
+		NFA auto = minimizing.createNFA(4, Set.of('a', 'b'), Set.of(3), 0);
+		auto.setTransition(0, 'a', 0);
+		auto.setTransition(0, 'b', 0);
+		auto.setTransition(0, 'a', 1);
+		auto.setTransition(1, 'b', 2);
+		auto.setTransition(2, 'b', 3);
+		assertEquals(4, auto.toDFA().getNumStates());
+	}
+
+	@Test
+	public void NFA_IntersectionProduct() {
+		// zwei DFAs: das Produkt ist wieder ein DFA
+		DFA evenA = factory.createDFA(2, Set.of('a', 'b'), Set.of(0), 0);
+		evenA.setTransition(0, 'a', 1);
+		evenA.setTransition(1, 'a', 0);
+		evenA.setTransition(0, 'b', 0);
+		evenA.setTransition(1, 'b', 1);
+		DFA endsB = factory.createDFA(2, Set.of('a', 'b'), Set.of(1), 0);
+		endsB.setTransition(0, 'a', 0);
+		endsB.setTransition(1, 'a', 0);
+		endsB.setTransition(0, 'b', 1);
+		endsB.setTransition(1, 'b', 1);
+		NFA product = evenA.intersection(endsB);
+		assertTrue(product instanceof DFAImpl);
+		assertTrue(isValidDFA((DFA) product));
+		for (String w : allWords(6)) {
+			if (w.indexOf('c') >= 0) continue;
+			assertEquals(evenA.accepts(w) && endsB.accepts(w), product.accepts(w), w);
+		}
+
+		// zwei NFAs mit Epsilon-Uebergaengen: a*b* geschnitten mit (ab)*
+		NFA aStarBStar = factory.createNFA(2, Set.of('a', 'b'), Set.of(1), 0);
+		aStarBStar.setTransition(0, 'a', 0);
+		aStarBStar.setTransition(0, null, 1);
+		aStarBStar.setTransition(1, 'b', 1);
+		NFA abStar = factory.createNFA(3, Set.of('a', 'b'), Set.of(0), 0);
+		abStar.setTransition(0, 'a', 1);
+		abStar.setTransition(1, 'b', 2);
+		abStar.setTransition(2, null, 0);
+		NFA both = aStarBStar.intersection(abStar);
+		assertFalse(both instanceof DFA);
+		assertTrue(both.accepts(""));
+		assertTrue(both.accepts("ab"));
+		assertFalse(both.accepts("abab"));
+		assertFalse(both.accepts("aabb"));
+		assertFalse(both.accepts("a"));
+
+		// disjunkte Alphabete: nur das leere Wort kann in beiden Sprachen liegen
+		DFA onlyA = factory.createDFA(1, Set.of('a'), Set.of(0), 0);
+		onlyA.setTransition(0, 'a', 0);
+		DFA onlyB = factory.createDFA(2, Set.of('b'), Set.of(1), 0);
+		onlyB.setTransition(0, 'b', 1);
+		onlyB.setTransition(1, 'b', 1);
+		NFA disjoint = onlyA.intersection(onlyB);
+		assertEquals(Set.of('a', 'b'), disjoint.getAlphabet());
+		assertTrue(disjoint.acceptsNothing());
+		assertFalse(onlyA.intersection(onlyA).acceptsNothing());
+	}
+
+	@Test
+	public void NFA_SubSetOfAndMinus() {
+		// (abc)+ ist in (abc|ab)+ enthalten, aber nicht umgekehrt
+		assertTrue(n11.subSetOf(n12));
+		assertFalse(n12.subSetOf(n11));
+		assertTrue(n1.subSetOf(n10));
+		assertFalse(n10.subSetOf(n1));
+
+		NFA difference = n12.minus(n11);
+		assertTrue(difference.accepts("ab"));
+		assertTrue(difference.accepts("abcab"));
+		assertFalse(difference.accepts("abc"));
+		assertFalse(difference.accepts(""));
+
+		// auch wenn der DFA von b gross wird (2^11 Zustaende), wird nur ein Teil davon gebraucht
+		NFA any = factory.createNFA(1, Set.of('a', 'b'), Set.of(0), 0);
+		any.setTransition(0, 'a', 0);
+		any.setTransition(0, 'b', 0);
+		NFA last = factory.createNFA(12, Set.of('a', 'b'), Set.of(11), 0);
+		last.setTransition(0, 'a', 0);
+		last.setTransition(0, 'b', 0);
+		last.setTransition(0, 'a', 1);
+		for (int s = 1; s < 11; s++) {
+			last.setTransition(s, 'a', s + 1);
+			last.setTransition(s, 'b', s + 1);
+		}
+		assertTrue(last.subSetOf(any));
+		assertFalse(any.subSetOf(last));
+		assertTrue(any.minus(last).accepts("b"));
+		assertFalse(last.minus(any).accepts("a" + "b".repeat(10)));
+
+		// Gegenbeispiel: ein Wort aus L(n12) ohne L(n11), null wenn es keines gibt
+		String w = ((NFAImpl) n12).counterexample(n11);
+		assertTrue(n12.accepts(w));
+		assertFalse(n11.accepts(w));
+		assertNull(((NFAImpl) n11).counterexample(n12));
+	}
+
+	@Test
+	public void NFA_Counterexample() {
+		// gleiche Sprache in zwei Schreibweisen; die Antichain haelt die Suche klein, obwohl die DFAs 2^13 Zustaende haben
+		NFAImpl a = (NFAImpl) aFromEnd(12);
+		NFAImpl b = (NFAImpl) factory.createNFA(15, Set.of('a', 'b'), Set.of(13), 14);
+		b.setTransition(14, null, 0);
+		b.setTransition(0, 'b', 0);
+		b.setTransition(0, 'a', 0);
+		b.setTransition(0, 'a', 1);
+		for (int s = 1; s < 13; s++) {
+			b.setTransition(s, 'b', s + 1);
+			b.setTransition(s, 'a', s + 1);
+		}
+		assertNull(a.counterexample(b));
+		assertNull(b.counterexample(a));
+		assertTrue(a.equals(b));
+
+		// Gegenbeispiel: ein Wort aus der ersten Sprache, das die zweite nicht akzeptiert
+		NFAImpl shorter = (NFAImpl) aFromEnd(11);
+		String word = a.counterexample(shorter);
+		assertNotNull(word);
+		assertTrue(a.accepts(word));
+		assertFalse(shorter.accepts(word));
+	}
+
+	@Test
+	public void LazyDFA_Flush() {
+		NFAImpl n = (NFAImpl) aFromEnd(8);
+		Random random = new Random(1);
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			StringBuilder w = new StringBuilder();
+			for (int j = 0; j < 30; j++)
+				w.append(random.nextBoolean() ? 'a' : 'b');
+			words.add(w.toString());
+		}
+
+		// der DFA hat 2^9 Zustaende, ein Cache fuer 16 Teilmengen muss also immer wieder geleert werden
+		LazyDFA small = n.toLazyDFA(16);
+		for (String w : words)
+			assertEquals(n.accepts(w).booleanValue(), small.accepts(w), w);
+		assertTrue(small.getFlushes() > 0);
+		assertTrue(small.getCachedStates() <= 16);
+
+		LazyDFA large = n.toLazyDFA();
+		for (String w : words)
+			assertEquals(n.accepts(w).booleanValue(), large.accepts(w), w);
+		assertEquals(0, large.getFlushes());
+
+		assertThrows(IllegalArgumentException.class, () -> n.toLazyDFA(1));
+	}
+
+	@Test
+	public void NFAMatcher_Batch() throws IOException {
+		List<String> words = allWords(6);
+		for (NFA n : Arrays.asList(n5, d5, n12)) {
+			NFAMatcher matcher = ((NFAImpl) n).matcher();
+			boolean[] all = matcher.matchesAll(words);
+			List<String> accepted = new ArrayList<>();
+			for (int i = 0; i < words.size(); i++) {
+				String w = words.get(i);
+				assertEquals(n.accepts(w).booleanValue(), all[i], w);
+				assertEquals(all[i], matcher.matches(new StringBuilder(w)), w);
+				assertEquals(all[i], matcher.matches(("x" + w + "yz").toCharArray(), 1, w.length()), w);
+				assertEquals(all[i], matcher.matches(new StringReader(w)), w);
+				if (all[i])
+					accepted.add(w);
+			}
+			assertEquals(accepted, matcher.filter(words.stream()).collect(Collectors.toList()));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> ((NFAImpl) n12).matcher().matches(new char[2], 1, 2));
+	}
+
+	@Test
+	public void DFAFileScanner_Lines() throws IOException {
+		DFAImpl dfa = (DFAImpl) n12.toDFA();
+		DFAFileScanner scanner = dfa.fileScanner();
+		Path file = Files.createTempFile("scanner", ".txt");
+		try {
+			// Zeilen "ab", "abc" (mit \r\n), "ca", "abab", "c" ohne abschliessendes \n
+			Files.write(file, "ab\nabc\r\nca\nabab\nc".getBytes(StandardCharsets.ISO_8859_1));
+			List<String> matches = new ArrayList<>();
+			assertEquals(3, scanner.scanLines(file, (start, end) -> matches.add(start + "-" + end)));
+			assertEquals(Arrays.asList("0-2", "3-6", "11-15"), matches);
+
+			Files.write(file, "abcab".getBytes(StandardCharsets.ISO_8859_1));
+			matches.clear();
+			assertEquals(3, scanner.scanPrefixes(file, (start, end) -> matches.add(start + "-" + end)));
+			assertEquals(Arrays.asList("0-2", "0-3", "0-5"), matches);
+			assertTrue(scanner.accepts(file));
+			Files.write(file, "abca".getBytes(StandardCharsets.ISO_8859_1));
+			assertFalse(scanner.accepts(file));
+
+			// Bytes ausserhalb des Alphabets werden wie bei accepts(String) abgelehnt, auch nach dem toten Zustand
+			Files.write(file, "ab\ncx\n".getBytes(StandardCharsets.ISO_8859_1));
+			assertThrows(IllegalCharacterException.class, () -> scanner.scanLines(file, (start, end) -> {}));
+			assertThrows(IllegalCharacterException.class, () -> scanner.accepts(file));
+			// ein einzelnes \r gehoert zum Wort
+			Files.write(file, "ab\r".getBytes(StandardCharsets.ISO_8859_1));
+			assertThrows(IllegalCharacterException.class, () -> scanner.scanLines(file, (start, end) -> {}));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void ParallelDFAMatcher_Chunks() {
+		DFAImpl dfa = (DFAImpl) n12.toDFA();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// kleine Abschnitte, damit auch kurze Woerter auf mehrere Tasks verteilt werden
+			ParallelDFAMatcher matcher = dfa.parallelMatcher(pool, 16);
+			Random random = new Random(2);
+			for (int i = 0; i < 50; i++) {
+				StringBuilder w = new StringBuilder();
+				while (w.length() < 2000)
+					w.append(random.nextInt(10) == 0 ? "abc" : "ab");
+				if (i % 2 == 1)
+					w.setCharAt(random.nextInt(w.length()), 'c');
+				String word = w.toString();
+				assertEquals(dfa.accepts(word).booleanValue(), matcher.matches(word));
+				assertEquals(dfa.accepts(word).booleanValue(), matcher.matches(("x" + word).toCharArray(), 1, word.length()));
+			}
+			assertThrows(IllegalCharacterException.class, () -> matcher.matches("ab".repeat(1000) + "x"));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void ToDFA_Parallel() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (NFA n : Arrays.asList(n1, n2, n3, n4, n5, n6, n7, n8, n9, n10, n11, n12)) {
+				DFA d = ((NFAImpl) n).toDFA(pool);
+				assertTrue(isValidDFA(d));
+				assertTrue(n.equals(d));
+				assertEquals(n.toDFA().getNumStates(), d.getNumStates());
+			}
+			// breite Ebenen: 2^13 Teilmengen
+			NFAImpl blowup = (NFAImpl) aFromEnd(12);
+			DFA d = blowup.toDFA(pool);
+			assertEquals(blowup.toDFA().getNumStates(), d.getNumStates());
+			assertEquals(1 << 13, d.minimize().getNumStates());
+			assertTrue(d.accepts("a" + "b".repeat(12)));
+			assertFalse(d.accepts("b".repeat(13)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void Regex_Compile() {
+		// gleiche Sprache wie java.util.regex auf allen Woertern bis zur Laenge 6
+		List<String> words = allWords(6);
+		for (String regex : Arrays.asList("(a|b)*c", "a{2,3}b?", "[ab]c*", "(ab|c)+", "a.c", "[^b]*", "(a|)b{2,}", "((a|b)(a|b))*")) {
+			NFA n = factory.createNFA(regex, chars);
+			for (String w : words)
+				assertEquals(w.matches(regex), n.accepts(w).booleanValue(), regex + " " + w);
+		}
+
+		// ohne Alphabet sind es die Zeichen im Ausdruck
+		NFA escaped = factory.createNFA("\\.\\*x");
+		assertEquals(Set.of('.', '*', 'x'), escaped.getAlphabet());
+		assertTrue(escaped.accepts(".*x"));
+		// mit CharRanges.ALL bleibt '.' ein Bereichsuebergang fuer alle Zeichen
+		NFA any = factory.createNFA("a.", CharRanges.ALL);
+		assertTrue(any.accepts("a\u20ac"));
+		assertFalse(any.accepts("a"));
+
+		assertThrows(IllegalCharacterException.class, () -> factory.createNFA("ax", chars));
+		for (String invalid : Arrays.asList("(a", "a)", "a{3,2}", "a{", "[b-a]", "[ab", "a\\", "a{1001}"))
+			assertThrows(IllegalArgumentException.class, () -> factory.createNFA(invalid), invalid);
+		assertThrows(IllegalArgumentException.class, () -> factory.createNFA(null));
+		assertTrue(factory.createNFA("a{1000}").accepts("a".repeat(1000)));
+		// verschachtelte Wiederholungen multiplizieren sich, begrenzt wird die Groesse des ganzen Automaten
+		assertTrue(factory.createNFA("(a{100}){100}").accepts("a".repeat(10000)));
+		assertThrows(IllegalArgumentException.class, () -> factory.createNFA("((a{1000}){1000}){1000}"));
+		assertThrows(IllegalArgumentException.class, () -> factory.createNFA("(a{2,1000}){1000}"));
+	}
+
+	@Test
+	public void MultiPattern_Matches() {
+		List<NFA> patterns = Arrays.asList(factory.createNFA("ab", chars), factory.createNFA("a(b|c)*", chars), factory.createNFA("c+", chars), n1);
+		MultiPatternMatcher matcher = MultiPatternMatcher.compile(patterns);
+		assertEquals(4, matcher.getNumPatterns());
+		assertArrayEquals(new int[]{0, 1}, matcher.matches("ab"));
+		assertArrayEquals(new int[]{1}, matcher.matches("abc"));
+		assertArrayEquals(new int[]{2}, matcher.matches("cc"));
+		assertArrayEquals(new int[0], matcher.matches(""));
+
+		// jedes Muster genau dann, wenn es das Wort allein akzeptiert
+		for (String w : allWords(5)) {
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < patterns.size(); i++) {
+				if (patterns.get(i).accepts(w))
+					expected.add(i);
+			}
+			assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), matcher.matches(w), w);
+			assertEquals(!expected.isEmpty(), matcher.matchesAny(w), w);
+			assertEquals(!expected.isEmpty(), matcher.getAutomaton().accepts(w).booleanValue(), w);
+		}
+
+		// ein akzeptierender Zustand ausserhalb des Musters zaehlt nicht (und nicht fuer das naechste Muster)
+		NFA outside = factory.createNFA(2, chars, Set.of(1, 2), 0);
+		outside.setTransition(0, 'a', 1);
+		MultiPatternMatcher skipping = MultiPatternMatcher.compile(Arrays.asList(outside, factory.createNFA("c", chars)));
+		assertArrayEquals(new int[0], skipping.matches(""));
+		assertArrayEquals(new int[]{0}, skipping.matches("a"));
+		assertArrayEquals(new int[]{1}, skipping.matches("c"));
+	}
+
+	@Test
+	public void FrozenDFA_Snapshot() {
+		DFAImpl dfa = (DFAImpl) d5.toDFA();
+		FrozenDFA frozen = dfa.freeze();
+		List<String> words = allWords(6);
+
+		// spaetere Aenderungen am DFA aendern die Kopie nicht
+		for (int s = 0; s < dfa.getNumStates(); s++)
+			dfa.clearTransitions(s, 'c');
+		assertFalse(dfa.accepts("c"));
+		assertTrue(frozen.accepts("c"));
+
+		// mehrere Threads mit je einem eigenen Cursor
+		words.parallelStream().forEach(w -> {
+			FrozenDFA.Cursor cursor = frozen.cursor();
+			for (char c : w.toCharArray())
+				cursor.doStep(c);
+			assertEquals(d5.accepts(w).booleanValue(), cursor.isInAcceptingState(), w);
+			assertEquals(d5.accepts(w).booleanValue(), frozen.accepts(w), w);
+		});
+		assertEquals(FrozenDFA.DEAD, frozen.step(FrozenDFA.DEAD, 'a'));
+		assertFalse(frozen.isAcceptingState(FrozenDFA.DEAD));
+		assertFalse(frozen.isAcceptingState(frozen.getNumStates()));
+		assertThrows(IllegalCharacterException.class, () -> frozen.step(frozen.getInitialState(), 'x'));
+
+		// auch ein NFA kann eingefroren werden (ueber toDFA)
+		FrozenDFA frozenNFA = ((NFAImpl) n12).freeze();
+		for (String w : words)
+			assertEquals(n12.accepts(w).booleanValue(), frozenNFA.accepts(w), w);
+	}
+
+	@Test
+	public void AutomatonFormat_RoundTrip() throws IOException {
+		List<NFA> automata = Arrays.asList(n1, d1, n2, d2, n3, d3, n4, d4, n5, d5, n6, d6, n7, n8, n9, n10, n11, n12, factory.createNFA("a[b-y]*.", CharRanges.ALL),
+				factory.createNFA("a[b-y]*.", CharRanges.ALL).toDFA());
+		for (NFA a : automata) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			AutomatonFormat.write(a, out);
+			NFA read = AutomatonFormat.read(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals(a instanceof DFA, read instanceof DFA);
+			assertEquals(a.getNumStates(), read.getNumStates());
+			assertEquals(a.getInitialState(), read.getInitialState());
+			assertEquals(a.getAcceptingStates(), read.getAcceptingStates());
+			assertEquals(a.getAlphabet(), read.getAlphabet());
+			assertTrue(a.equals(read));
+		}
+
+		Path file = Files.createTempFile("automaton", ".bin");
+		try {
+			AutomatonFormat.write(n12, file);
+			assertTrue(n12.equals(AutomatonFormat.read(file)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	@Test
+	public void AutomatonFormat_Corrupt() throws IOException {
+		// NFA (Uebergaenge als CSR) und DFA (Tabelle)
+		for (NFA a : Arrays.asList(n12, n12.toDFA())) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			AutomatonFormat.write(a, out);
+			byte[] bytes = out.toByteArray();
+
+			// jede abgeschnittene Datei ist ungueltig
+			for (int length = 0; length < bytes.length; length++) {
+				byte[] truncated = Arrays.copyOf(bytes, length);
+				assertThrows(IOException.class, () -> AutomatonFormat.read(new ByteArrayInputStream(truncated)), "length " + length);
+			}
+			// ein veraendertes Byte ergibt einen anderen gueltigen Automaten oder eine IOException, aber nie etwas anderes
+			for (int i = 0; i < bytes.length; i++) {
+				for (int value : new int[]{0x00, 0x7f, 0x80, 0xff}) {
+					byte[] changed = bytes.clone();
+					changed[i] = (byte) value;
+					try {
+						NFA read = AutomatonFormat.read(new ByteArrayInputStream(changed));
+						for (String w : allWords(3))
+							read.accepts(w);
+					} catch (IOException | IllegalCharacterException e) {
+						// erwartet
+					}
+				}
+			}
+			// andere Versionen werden nicht gelesen
+			byte[] version = bytes.clone();
+			version[5]++;
+			assertThrows(IOException.class, () -> AutomatonFormat.read(new ByteArrayInputStream(version)));
+		}
+	}
+
+	@Test
+	public void CompiledDFA_Matches() {
+		List<String> words = allWords(6);
+		for (NFA n : Arrays.asList(n5, n9, n12)) {
+			CompiledDFA compiled = ((DFAImpl) n.toDFA()).compile();
+			assertTrue(compiled.isGenerated());
+			for (String w : words) {
+				assertEquals(n.accepts(w).booleanValue(), compiled.matches(w), w);
+				assertEquals(n.accepts(w).booleanValue(), compiled.matches(new StringBuilder(w)), w);
+				assertEquals(n.accepts(w).booleanValue(), compiled.matches(("x" + w + "y").toCharArray(), 1, w.length()), w);
+			}
+		}
+
+		// lange Eingaben laufen durch die Schleifen des erzeugten Codes
+		CompiledDFA abOrAbc = ((DFAImpl) n12.toDFA()).compile();
+		String longWord = "ab".repeat(100000) + "abc";
+		assertTrue(abOrAbc.matches(longWord));
+		assertFalse(abOrAbc.matches(longWord + "c"));
+		// Zeichen ausserhalb des Alphabets, auch hinter einem fehlenden Uebergang
+		assertThrows(IllegalCharacterException.class, () -> abOrAbc.matches("abx"));
+		assertThrows(IllegalCharacterException.class, () -> abOrAbc.matches("cx"));
+		assertThrows(IllegalCharacterException.class, () -> abOrAbc.matches("ccx".toCharArray(), 0, 3));
+		assertThrows(IndexOutOfBoundsException.class, () -> abOrAbc.matches(new char[2], 1, 2));
+
+		// 2^13 Zustaende passen nicht in eine Methode (64 KB), dann wird ein FrozenDFA benutzt
+		NFA blowup = aFromEnd(12);
+		CompiledDFA large = ((DFAImpl) blowup.toDFA()).compile();
+		assertFalse(large.isGenerated());
+		assertTrue(large.matches("a" + "b".repeat(12)));
+		assertFalse(large.matches("b".repeat(13)));
+	}
+
+	@Test
+	public void SymbolClasses_Split() throws IOException {
+		Set<Character> letters = new HashSet<>();
+		for (char c = 'a'; c <= 'z'; c++)
+			letters.add(c);
+		// Woerter, die auf x enden: alle anderen Buchstaben verhalten sich gleich
+		DFA d = factory.createDFA(2, letters, Set.of(1), 0);
+		for (char c : letters) {
+			d.setTransition(0, c, c == 'x' ? 1 : 0);
+			d.setTransition(1, c, c == 'x' ? 1 : 0);
+		}
+		DFA m = d.minimize();
+		assertEquals(2, m.getNumStates());
+		assertTrue(m.equals(d));
+		assertTrue(d.complement().accepts("xa"));
+		assertFalse(d.complement().accepts("ax"));
+		assertEquals(2, factory.createNFA("[a-z]*x", letters).toDFA().minimize().getNumStates());
+
+		// die Buchstaben teilen sich im Minimalautomaten eine Spalte, ein einzelner Uebergang darf nur q aendern
+		int other = 1 - m.getInitialState();
+		m.setTransition(m.getInitialState(), 'q', other);
+		assertEquals(other, m.getNextState(m.getInitialState(), 'q'));
+		assertEquals(m.getInitialState(), m.getNextState(m.getInitialState(), 'r'));
+		assertEquals(m.getInitialState(), m.getNextState(other, 'q'));
+		assertTrue(m.accepts("q"));
+		assertFalse(m.accepts("r"));
+		assertFalse(d.accepts("q"));
+
+		// die Datei hat weiterhin eine Spalte pro Zeichen, auch fuer zusammengefasste Klassen
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AutomatonFormat.write(m, out);
+		NFA loaded = AutomatonFormat.read(new ByteArrayInputStream(out.toByteArray()));
+		assertTrue(loaded.equals(m));
+		assertTrue(loaded.accepts("q"));
+	}
+
+	@Test
+	public void CharRanges_Transitions() {
+		// Bezeichner ueber allen UTF-16-Zeichen: ein Buchstabe, dann Buchstaben oder Ziffern
+		CharRanges letters = CharRanges.range('a', 'z').union(CharRanges.range('A', 'Z'));
+		CharRanges digits = CharRanges.range('0', '9');
+		NFAImpl id = (NFAImpl) factory.createNFA(2, CharRanges.ALL, Set.of(1), 0);
+		id.setRangeTransition(0, letters, 1);
+		id.setRangeTransition(1, letters.union(digits), 1);
+		assertTrue(id.accepts("x1"));
+		assertFalse(id.accepts("1x"));
+		assertFalse(id.accepts("a\u20ac"));
+		assertTrue(id.toDFA().equals(id));
+		assertEquals(2, id.toDFA().minimize().getNumStates());
+
+		// einzelne Zeichen und Bereiche im selben DFA
+		DFAImpl dfa = (DFAImpl) factory.createDFA(2, CharRanges.ALL, Set.of(1), 0);
+		for (char c = 'a'; c <= 'z'; c++)
+			dfa.setTransition(0, c, 1);
+		dfa.setRangeTransition(1, CharRanges.range('\u4e00', '\u9fff'), 1);
+		dfa.setTransition(1, '\u5000', 0);
+		assertEquals(1, dfa.getNextState(0, 'm'));
+		assertNull(dfa.getNextState(0, 'A'));
+		assertNull(dfa.getNextState(1, 'a'));
+		assertEquals(1, dfa.getNextState(1, '\u4fff'));
+		assertEquals(0, dfa.getNextState(1, '\u5000'));
+		assertTrue(dfa.accepts("a\u4e00\u9fff"));
+		assertTrue(dfa.accepts("a\u5000b"));
+		assertFalse(dfa.accepts("a\u5000"));
+		// der erzeugte Code verzweigt fuer die grossen Bereiche ueber die Bereichsgrenzen statt per switch
+		CompiledDFA compiled = dfa.compile();
+		assertTrue(compiled.isGenerated());
+		for (String w : Arrays.asList("", "a", "m\u4e00", "a\u4dff", "a\u4e00\u9fff", "a\ua000", "a\u5000b", "a\u5000", "a\u4fff\u5001\uffff", "\uffff"))
+			assertEquals(dfa.accepts(w).booleanValue(), compiled.matches(w), w);
+
+		// Produkt, Differenz und Komplement schneiden nur an den Bereichsgrenzen
+		NFA lower = factory.createNFA("[a-m]+", CharRanges.ALL);
+		NFA intersection = id.intersection(lower);
+		assertTrue(intersection.accepts("abc"));
+		assertFalse(intersection.accepts("abz"));
+		assertFalse(intersection.accepts("a1"));
+		NFA difference = id.minus(lower);
+		assertTrue(difference.accepts("a1"));
+		assertTrue(difference.accepts("z"));
+		assertFalse(difference.accepts("m"));
+		assertTrue(intersection.subSetOf(lower));
+		assertFalse(id.subSetOf(lower));
+		NFA complement = id.complement();
+		assertTrue(complement.accepts(""));
+		assertTrue(complement.accepts("1"));
+		assertTrue(complement.accepts("a\uffff"));
+		assertFalse(complement.accepts("ab"));
+	}
+
+	@Test
+	public void DFA_ConcurrentReaders() throws IOException {
+		// Leser (freeze, Matcher, Dateiformat, getNextState) veraendern den DFA nicht, auch wenn seine Tabelle
+		// nach dem Teilen von Spalten Reserve in den Zeilen hat; sie duerfen also gleichzeitig laufen
+		DFAImpl dfa = (DFAImpl) factory.createDFA(2, CharRanges.ALL, Set.of(1), 0);
+		dfa.setRangeTransition(0, CharRanges.range('a', 'z'), 1);
+		for (char c = 'a'; c <= 'f'; c++)
+			dfa.setTransition(1, c, c % 2 == 0 ? 0 : 1);
+		dfa.setRangeTransition(1, CharRanges.range('\u4e00', '\u9fff'), 1);
+		List<String> words = Arrays.asList("", "a", "ab", "ac", "b\u4e00", "z\u9fffa", "a\u20ac", "x" + "\u5000".repeat(1000));
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		AutomatonFormat.write(dfa, expected);
+		Path file = Files.createTempFile("words", ".txt");
+		try {
+			Files.write(file, "abc".getBytes(StandardCharsets.ISO_8859_1));
+			IntStream.range(0, 32).parallel().forEach(i -> {
+				CompiledDFA compiled = dfa.compile();
+				for (String w : words) {
+					boolean accepts = dfa.accepts(w);
+					assertEquals(accepts, dfa.freeze().accepts(w), w);
+					assertEquals(accepts, dfa.parallelMatcher().matches(w), w);
+					assertEquals(accepts, compiled.matches(w), w);
+				}
+				assertEquals(1, dfa.getNextState(0, 'q'));
+				assertEquals(0, dfa.getNextState(1, 'b'));
+				assertNull(dfa.getNextState(1, 'g'));
+				try {
+					assertTrue(dfa.fileScanner().accepts(file));
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					AutomatonFormat.write(dfa, out);
+					assertArrayEquals(expected.toByteArray(), out.toByteArray());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} finally {
+			Files.delete(file);
+		}
+		assertTrue(dfa.accepts("a\u4e00"));
+		assertFalse(dfa.accepts("ab"));
+	}
+
+	@Test
+	public void NFA_AcceptsNothingIncremental() {
+		// Kette 0 -> 1 -> ... -> 99, die Uebergaenge kommen in zufaelliger Reihenfolge dazu
+		int n = 100;
+		NFAImpl chain = (NFAImpl) factory.createNFA(n, chars, Set.of(n - 1), 0);
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < n - 1; i++)
+			order.add(i);
+		Collections.shuffle(order, new Random(3));
+		for (int k = 0; k < order.size(); k++) {
+			assertTrue(chain.acceptsNothing());
+			int from = order.get(k);
+			chain.setTransition(from, k % 2 == 0 ? 'a' : null, from + 1);
+			// ein schon vorhandener Uebergang aendert nichts
+			chain.setTransition(from, k % 2 == 0 ? 'a' : null, from + 1);
+		}
+		assertFalse(chain.acceptsNothing());
+
+		// Entfernen (mit welchem Zeichen der Uebergang gesetzt wurde, haengt von der Reihenfolge ab) und neue akzeptierende Zustaende
+		chain.clearTransitions(n / 2, 'a');
+		chain.clearTransitions(n / 2, null);
+		assertTrue(chain.acceptsNothing());
+		chain.setAcceptingStates(Set.of(n / 2));
+		assertFalse(chain.acceptsNothing());
+		chain.setAcceptingStates(Set.of());
+		assertTrue(chain.acceptsNothing());
+	}
+
+	@Test
+	public void NFA_Trim() {
+		// 0 -a-> 1 (akzeptierend), 0 -b-> 2 (tot), 3 -a-> 1 (unerreichbar), 4 (isoliert)
+		Ab1Impl trimming = new Ab1Impl();
+		for (boolean autoTrim : new boolean[]{false, true}) {
+			trimming.setAutoTrim(autoTrim);
+			for (NFA n : Arrays.asList(trimming.createNFA(5, chars, Set.of(1), 0), trimming.createDFA(5, chars, Set.of(1), 0))) {
+				n.setTransition(0, 'a', 1);
+				n.setTransition(0, 'b', 2);
+				n.setTransition(2, 'c', 2);
+				n.setTransition(3, 'a', 1);
+
+				NFAImpl trimmed = ((NFAImpl) n).trim();
+				assertEquals(n instanceof DFA, trimmed instanceof DFA);
+				assertEquals(2, trimmed.getNumStates());
+				assertEquals(0, trimmed.getInitialState());
+				assertEquals(Set.of(1), trimmed.getAcceptingStates());
+				assertTrue(trimmed.getNextStates(0, 'b').isEmpty());
+				assertTrue(trimmed.equals(n));
+
+				// mit autoTrim sind die Ergebnisse der Operationen schon getrimmt
+				NFA union = n.union(n10);
+				assertTrue(union.equals(trimmed.union(n10)));
+				assertEquals(autoTrim, ((NFAImpl) union).trim().getNumStates() == union.getNumStates());
+			}
+		}
+		// DFA ueber CharRanges.ALL mit geteilten Spalten: 0 -[a-z]-> 1 -[0-9]-> 1, 2 -x-> 1 (unerreichbar)
+		DFAImpl ranged = (DFAImpl) factory.createDFA(3, CharRanges.ALL, Set.of(1), 0);
+		ranged.setRangeTransition(0, CharRanges.range('a', 'z'), 1);
+		ranged.setRangeTransition(1, CharRanges.range('0', '9'), 1);
+		ranged.setTransition(2, 'x', 1);
+		DFAImpl trimmedRanged = ranged.trim();
+		assertEquals(2, trimmedRanged.getNumStates());
+		assertTrue(trimmedRanged.accepts("q42"));
+		assertFalse(trimmedRanged.accepts("X"));
+		assertFalse(trimmedRanged.accepts("4"));
+		assertTrue(trimmedRanged.equals(ranged));
+
+		// leere Sprache: nur der Startzustand bleibt
+		assertEquals(1, ((NFAImpl) n1).trim().getNumStates());
+		assertTrue(((NFAImpl) n1).trim().acceptsNothing());
+	}
+
+	@Test
+	public void NFA_RemoveEpsilons() {
+		List<String> words = allWords(6);
+		for (NFA n : Arrays.asList(n1, n2, n5, n7, n8, n9, n10, n11, n12, factory.createNFA("(a|b*)*c?(ab|)", chars))) {
+			NFAImpl epsilonFree = ((NFAImpl) n).removeEpsilons();
+			assertEquals(n.getNumStates(), epsilonFree.getNumStates());
+			for (int s = 0; s < epsilonFree.getNumStates(); s++) {
+				assertTrue(epsilonFree.getEpsilonStates(s).isEmpty());
+				for (int t = 0; t < epsilonFree.getNumStates(); t++)
+					assertFalse(epsilonFree.getTransitions()[s][t].contains(null));
+			}
+			for (String w : words)
+				assertEquals(n.accepts(w), epsilonFree.accepts(w), w);
+		}
+
+		// Bereichsuebergaenge bleiben Bereiche, autoTrim entfernt die nur ueber Epsilon erreichten Zustaende
+		NFAImpl ranges = (NFAImpl) factory.createNFA("(ab|[0-9])*.", CharRanges.ALL);
+		ranges.setAutoTrim(true);
+		NFAImpl trimmed = ranges.removeEpsilons();
+		assertTrue(trimmed.getNumStates() < ranges.getNumStates());
+		assertTrue(trimmed.accepts("ab7\u20ac"));
+		assertFalse(trimmed.accepts("ab"));
+		assertTrue(trimmed.equals(ranges));
+	}
+
 	private static boolean isValidDFA(DFA d) {
 		for (int s = 0; s < d.getNumStates(); s++) {
 			for (Character c : d.getAlphabet()) {
@@ -1639,6 +2471,43 @@ public class Ab1Tests {
 		assertTrue(d.equals(n));
 	}
 
+	// alle Woerter ueber a, b, c bis zur Laenge maxLength, kuerzere zuerst
+	private static List<String> allWords(int maxLength) {
+		List<String> words = new ArrayList<>();
+		words.add("");
+		for (int i = 0; i < words.size(); i++) {
+			if (words.get(i).length() == maxLength)
+				break;
+			for (char c : chars)
+				words.add(words.get(i) + c);
+		}
+		return words;
+	}
+
+	private static Integer[][] nextStates(DFA d) {
+		Set<Character> alphabet = new TreeSet<>(d.getAlphabet());
+		Integer[][] next = new Integer[d.getNumStates()][alphabet.size()];
+		for (int s = 0; s < d.getNumStates(); s++) {
+			int i = 0;
+			for (char c : alphabet)
+				next[s][i++] = d.getNextState(s, c);
+		}
+		return next;
+	}
+
+	// (a|b)*a(a|b)^n: das (n+1)-te Zeichen von hinten ist ein a
+	private NFA aFromEnd(int n) {
+		NFA nfa = factory.createNFA(n + 2, Set.of('a', 'b'), Set.of(n + 1), 0);
+		nfa.setTransition(0, 'a', 0);
+		nfa.setTransition(0, 'b', 0);
+		nfa.setTransition(0, 'a', 1);
+		for (int s = 1; s <= n; s++) {
+			nfa.setTransition(s, 'a', s + 1);
+			nfa.setTransition(s, 'b', s + 1);
+		}
+		return nfa;
+	}
+
 	@AfterAll
 	public static void printPoints() {
 		System.out.println("Gesamtpunkte: " + gesamtPunkte);